@@ -0,0 +1,42 @@
+#!/usr/bin/env bash
+# Bytes on the wire and latency of gateway routes, with and without gzip.
+#
+# Needs the gateway and the product, cart and order services running with some data, e.g.
+# docker compose up for MySQL, Mongo and Kafka and each service started with mvn spring-boot:run
+# (the gateway also needs GATEWAY_CACHE_INVALIDATION_TOKEN set).
+# Run once per upstream protocol setting to compare HTTP/1.1 with h2c, e.g.
+#   GATEWAY_UPSTREAM_PROTOCOLS=HTTP11 (restart gateway) ./wire-bench.sh http11
+#   GATEWAY_UPSTREAM_PROTOCOLS=H2C    (restart gateway) ./wire-bench.sh h2c
+# The identity rows are the uncompressed baseline for the gzip rows.
+#
+# Environment: GATEWAY (default http://localhost:8088), REQUESTS per case (default 500),
+# CONCURRENCY (default 32), USER_ID for the cart and order paths (default 1).
+set -euo pipefail
+
+label=${1:-run}
+gateway=${GATEWAY:-http://localhost:8088}
+requests=${REQUESTS:-500}
+concurrency=${CONCURRENCY:-32}
+user_id=${USER_ID:-1}
+paths=("/api/products" "/api/orders" "/api/orders/user/${user_id}" "/api/carts/${user_id}")
+
+measure() {
+  local path=$1 encoding=$2
+  # Accept-Encoding is sent by hand so curl does not decode and size_download is the wire size
+  seq "$requests" | xargs -P "$concurrency" -I{} \
+    curl -s -o /dev/null -H "Accept-Encoding: ${encoding}" -H "Cache-Control: no-cache" \
+      -w '%{size_download} %{size_header} %{time_total} %{http_code}\n' "${gateway}${path}" \
+  | sort -k3 -n \
+  | awk -v label="$label" -v path="$path" -v enc="$encoding" '
+      function pct(p,   i) { i = int(NR * p + 0.999999); return t[i < 1 ? 1 : i] * 1000 }
+      { body += $1; head += $2; t[NR] = $3; total += $3; if ($4 !~ /^2/) failed++ }
+      END {
+        printf "%-8s %-28s %-9s body=%9.0fB headers=%5.0fB mean=%7.2fms p50=%7.2fms p95=%7.2fms p99=%7.2fms non-2xx=%d\n",
+          label, path, enc, body / NR, head / NR, total / NR * 1000, pct(0.50), pct(0.95), pct(0.99), failed
+      }'
+}
+
+for path in "${paths[@]}"; do
+  measure "$path" identity
+  measure "$path" gzip
+done
@@ -0,0 +1,143 @@
+package com.peerislands.ecommerce.admission;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit on the requests the gateway has in flight upstream, shared by every route using the
+ * {@code AdmissionControl} filter and adapted to the response times it observes.
+ * <p>
+ * Every {@code window}, the average response time of the window is compared with a long-term
+ * average. While it stays within {@code rtt-tolerance} times the long-term average the limit
+ * grows by about the square root of itself; as requests start queueing upstream it shrinks in
+ * proportion, down to half per window. The limit is only raised while it is actually reached,
+ * so a quiet period cannot inflate it. Each {@link Priority} may fill its share of the limit.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter {
+
+    static final long MIN_SAMPLES = 20;
+
+    // Each window's weight in the long-term response time, so roughly the last 20 windows count
+    private static final double LONG_RTT_WEIGHT = 0.05;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long windowNanos;
+    private final double rttTolerance;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final LongAdder rttSum = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final AtomicLong windowEnd;
+    private volatile double limit;
+    private double longRtt = -1;
+
+    @Autowired
+    public AdaptiveConcurrencyLimiter(
+            @Value("${gateway.admission.initial-limit:200}") int initialLimit,
+            @Value("${gateway.admission.min-limit:20}") int minLimit,
+            @Value("${gateway.admission.max-limit:1000}") int maxLimit,
+            @Value("${gateway.admission.window:1s}") Duration window,
+            @Value("${gateway.admission.rtt-tolerance:1.5}") double rttTolerance,
+            MeterRegistry registry) {
+        this(initialLimit, minLimit, maxLimit, window, rttTolerance, System::nanoTime);
+        Gauge.builder("gateway.admission.limit", this, AdaptiveConcurrencyLimiter::limit)
+                .description("Requests the gateway currently lets in flight upstream")
+                .register(registry);
+        Gauge.builder("gateway.admission.in-flight", inFlight, AtomicInteger::get)
+                .description("Requests admitted and not yet complete")
+                .register(registry);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration window,
+                               double rttTolerance, LongSupplier nanoClock) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit || rttTolerance < 1) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= initial <= max, "
+                    + "and the response time tolerance must be at least 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.windowNanos = window.toNanos();
+        this.rttTolerance = rttTolerance;
+        this.nanoClock = nanoClock;
+        this.limit = initialLimit;
+        this.windowEnd = new AtomicLong(nanoClock.getAsLong() + windowNanos);
+    }
+
+    /**
+     * Admits a request if fewer than the priority's share of the limit are in flight. An
+     * admitted request must be released exactly once.
+     */
+    public boolean tryAcquire(Priority priority) {
+        int allowed = Math.max(1, (int) (limit * priority.share()));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                peakInFlight.accumulateAndGet(current + 1, Math::max);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a request that completed after {@code rttNanos}, counting its response time.
+     */
+    public void release(long rttNanos) {
+        inFlight.decrementAndGet();
+        rttSum.add(rttNanos);
+        samples.increment();
+        long now = nanoClock.getAsLong();
+        long end = windowEnd.get();
+        if (now - end >= 0 && windowEnd.compareAndSet(end, now + windowNanos)) {
+            update();
+        }
+    }
+
+    /**
+     * Releases a request whose response time says nothing about upstream, such as one
+     * cancelled by the client.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    private synchronized void update() {
+        // Too few responses to judge; they are kept for the next window
+        if (samples.sum() < MIN_SAMPLES) {
+            return;
+        }
+        double shortRtt = (double) rttSum.sumThenReset() / Math.max(samples.sumThenReset(), 1);
+        int peak = peakInFlight.getAndSet(inFlight.get());
+        longRtt = longRtt < 0 ? shortRtt : longRtt * (1 - LONG_RTT_WEIGHT) + shortRtt * LONG_RTT_WEIGHT;
+        // Let the long-term average follow quickly once response times have improved for good
+        if (longRtt > shortRtt * 2) {
+            longRtt *= 0.95;
+        }
+        double current = limit;
+        if (peak < current / 2) {
+            return;
+        }
+        double gradient = shortRtt <= 0 ? 1.0 : Math.max(0.5, Math.min(1.0, rttTolerance * longRtt / shortRtt));
+        double target = current * gradient + Math.sqrt(current);
+        limit = Math.max(minLimit, Math.min(maxLimit, current * (1 - SMOOTHING) + target * SMOOTHING));
+    }
+}
@@ -0,0 +1,136 @@
+package com.peerislands.ecommerce.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Admits requests of a route against the gateway-wide {@link AdaptiveConcurrencyLimiter},
+ * so that under overload the lowest priority traffic is turned away first.
+ * <p>
+ * Requests take the route's {@code priority} unless they match an entry of
+ * {@code high-priority-requests} or {@code low-priority-requests}, written as a path pattern
+ * optionally preceded by a method. Requests that are not admitted get 503 at once rather than
+ * waiting. Listed first in the route's filters, after the response cache and request
+ * coalescing, so requests answered by the gateway itself are never shed.
+ * <pre>
+ * filters:
+ *   - name: AdmissionControl
+ *     args:
+ *       priority: NORMAL
+ *       high-priority-requests: POST /api/orders
+ * </pre>
+ */
+@Component
+public class AdmissionControlGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<AdmissionControlGatewayFilterFactory.Config> {
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final MeterRegistry registry;
+
+    public AdmissionControlGatewayFilterFactory(AdaptiveConcurrencyLimiter limiter, MeterRegistry registry) {
+        super(Config.class);
+        this.limiter = limiter;
+        this.registry = registry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("priority");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() == null ? "unknown" : config.getRouteId();
+        List<Rule> rules = Stream.concat(
+                config.getHighPriorityRequests().stream().map(request -> Rule.parse(request, Priority.HIGH)),
+                config.getLowPriorityRequests().stream().map(request -> Rule.parse(request, Priority.LOW)))
+                .toList();
+        Map<Priority, Counter> admitted = new EnumMap<>(Priority.class);
+        Map<Priority, Counter> shed = new EnumMap<>(Priority.class);
+        for (Priority priority : Priority.values()) {
+            admitted.put(priority, decisions(routeId, priority, "admitted"));
+            shed.put(priority, decisions(routeId, priority, "shed"));
+        }
+        return (exchange, chain) -> {
+            Priority priority = priorityOf(exchange.getRequest(), rules, config.getPriority());
+            if (!limiter.tryAcquire(priority)) {
+                shed.get(priority).increment();
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                return response.setComplete();
+            }
+            admitted.get(priority).increment();
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> {
+                // A 503 was turned away further along without reaching the service
+                HttpStatusCode status = exchange.getResponse().getStatusCode();
+                if (signal == SignalType.CANCEL || (status != null && status.value() == 503)) {
+                    limiter.release();
+                } else {
+                    limiter.release(System.nanoTime() - start);
+                }
+            });
+        };
+    }
+
+    static Priority priorityOf(ServerHttpRequest request, List<Rule> rules, Priority routePriority) {
+        for (Rule rule : rules) {
+            if ((rule.method() == null || rule.method() == request.getMethod())
+                    && rule.path().matches(request.getPath().pathWithinApplication())) {
+                return rule.priority();
+            }
+        }
+        return routePriority;
+    }
+
+    private Counter decisions(String routeId, Priority priority, String result) {
+        return Counter.builder("gateway.admission.requests")
+                .tag("route", routeId)
+                .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                .tag("result", result)
+                .description("Requests by whether admission control let them through")
+                .register(registry);
+    }
+
+    record Rule(HttpMethod method, PathPattern path, Priority priority) {
+
+        static Rule parse(String request, Priority priority) {
+            String[] parts = request.trim().split("\\s+", 2);
+            if (parts.length == 1) {
+                return new Rule(null, PathPatternParser.defaultInstance.parse(parts[0]), priority);
+            }
+            return new Rule(HttpMethod.valueOf(parts[0].toUpperCase(Locale.ROOT)),
+                    PathPatternParser.defaultInstance.parse(parts[1]), priority);
+        }
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private Priority priority = Priority.NORMAL;
+        private List<String> highPriorityRequests = new ArrayList<>();
+        private List<String> lowPriorityRequests = new ArrayList<>();
+        private String routeId;
+    }
+}
@@ -0,0 +1,23 @@
+package com.peerislands.ecommerce.admission;
+
+/**
+ * Priority of a request under overload, with the share of the gateway's concurrency limit
+ * that requests of the class may fill. Lower classes run out of room first, so they are shed
+ * before higher ones.
+ */
+public enum Priority {
+
+    HIGH(1.0),
+    NORMAL(0.9),
+    LOW(0.7);
+
+    private final double share;
+
+    Priority(double share) {
+        this.share = share;
+    }
+
+    double share() {
+        return share;
+    }
+}
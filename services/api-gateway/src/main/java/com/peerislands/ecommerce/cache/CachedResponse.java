@@ -0,0 +1,16 @@
+package com.peerislands.ecommerce.cache;
+
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A complete upstream response held by the {@link ResponseCache}.
+ */
+record CachedResponse(String routeId, int status, HttpHeaders headers, byte[] body, Instant storedAt, Duration ttl) {
+
+    int weight() {
+        return body.length + headers.toString().length();
+    }
+}
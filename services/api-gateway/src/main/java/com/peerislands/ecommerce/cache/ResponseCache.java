@@ -0,0 +1,178 @@
+package com.peerislands.ecommerce.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded store of upstream GET responses shared by every route using the
+ * {@code ResponseCache} filter.
+ * <p>
+ * Entries are weighed by their size in bytes and expire individually after the TTL chosen
+ * when they were stored. Responses that vary on request headers are stored once per
+ * combination of those header values; the header names are remembered per resource.
+ */
+@Component
+public class ResponseCache {
+
+    private final Cache<Key, CachedResponse> responses;
+    private final Cache<Resource, List<String>> varyHeaders;
+    private final long maxEntryBytes;
+    private final MeterRegistry registry;
+    private final Map<String, RouteStats> routeStats = new ConcurrentHashMap<>();
+
+    public ResponseCache(
+            @Value("${gateway.response-cache.max-size:64MB}") DataSize maxSize,
+            @Value("${gateway.response-cache.max-entry-size:1MB}") DataSize maxEntrySize,
+            MeterRegistry registry) {
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.registry = registry;
+        this.responses = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, CachedResponse response) -> response.weight())
+                .expireAfter(Expiry.creating((Key key, CachedResponse response) -> response.ttl()))
+                .removalListener((Key key, CachedResponse response, RemovalCause cause) -> {
+                    if (response != null) {
+                        stats(response.routeId()).bytes.addAndGet(-response.weight());
+                    }
+                })
+                .executor(Runnable::run)
+                .build();
+        this.varyHeaders = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .build();
+    }
+
+    long maxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    List<String> varyHeaders(Resource resource) {
+        return varyHeaders.getIfPresent(resource);
+    }
+
+    CachedResponse get(Key key) {
+        return responses.getIfPresent(key);
+    }
+
+    void put(Key key, List<String> vary, CachedResponse response) {
+        varyHeaders.put(key.resource(), vary);
+        stats(response.routeId()).bytes.addAndGet(response.weight());
+        responses.put(key, response);
+    }
+
+    void recordHit(String routeId) {
+        stats(routeId).hits.increment();
+    }
+
+    void recordMiss(String routeId) {
+        stats(routeId).misses.increment();
+    }
+
+    /**
+     * Drops the cached responses of a route whose path is one of {@code paths}, whatever the
+     * query, or is one of {@code pathPrefixes} or lies below one of them; every response of the
+     * route when neither is given.
+     *
+     * @return the number of responses dropped
+     */
+    public int invalidate(String routeId, List<String> pathPrefixes, List<String> paths) {
+        varyHeaders.asMap().keySet().removeIf(resource -> matches(resource, routeId, pathPrefixes, paths));
+        int removed = 0;
+        for (Key key : responses.asMap().keySet()) {
+            if (matches(key.resource(), routeId, pathPrefixes, paths) && responses.asMap().remove(key) != null) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static boolean matches(Resource resource, String routeId, List<String> pathPrefixes, List<String> paths) {
+        if (!resource.routeId().equals(routeId)) {
+            return false;
+        }
+        boolean noPrefixes = pathPrefixes == null || pathPrefixes.isEmpty();
+        boolean noPaths = paths == null || paths.isEmpty();
+        if (noPrefixes && noPaths) {
+            return true;
+        }
+        String path = resource.path();
+        if (!noPaths && paths.contains(path)) {
+            return true;
+        }
+        if (noPrefixes) {
+            return false;
+        }
+        for (String prefix : pathPrefixes) {
+            if (path.equals(prefix) || path.startsWith(prefix.endsWith("/") ? prefix : prefix + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private RouteStats stats(String routeId) {
+        return routeStats.computeIfAbsent(routeId, this::register);
+    }
+
+    private RouteStats register(String routeId) {
+        RouteStats stats = new RouteStats();
+        FunctionCounter.builder("gateway.cache.requests", stats.hits, LongAdder::sum)
+                .tag("route", routeId)
+                .tag("result", "hit")
+                .description("Cacheable requests by whether the response cache served them")
+                .register(registry);
+        FunctionCounter.builder("gateway.cache.requests", stats.misses, LongAdder::sum)
+                .tag("route", routeId)
+                .tag("result", "miss")
+                .description("Cacheable requests by whether the response cache served them")
+                .register(registry);
+        Gauge.builder("gateway.cache.hit.ratio", stats, RouteStats::hitRatio)
+                .tag("route", routeId)
+                .description("Share of cacheable requests served from the response cache")
+                .register(registry);
+        Gauge.builder("gateway.cache.size", stats.bytes, AtomicLong::get)
+                .tag("route", routeId)
+                .baseUnit("bytes")
+                .description("Bytes of responses held in the response cache")
+                .register(registry);
+        return stats;
+    }
+
+    /**
+     * A cacheable resource: route, path and query string.
+     */
+    record Resource(String routeId, String path, String query) {
+    }
+
+    /**
+     * One stored variant of a resource, identified by the values of its Vary headers.
+     */
+    record Key(Resource resource, List<String> variant) {
+    }
+
+    private static final class RouteStats {
+        private final AtomicLong bytes = new AtomicLong();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        private double hitRatio() {
+            double h = hits.sum();
+            double total = h + misses.sum();
+            return total == 0 ? 0 : h / total;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.peerislands.ecommerce.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Invalidation hook for services whose responses the gateway caches.
+ * <p>
+ * The endpoint is served on the public port, so the gateway refuses to start without a token.
+ */
+@RestController
+@RequestMapping("/internal/cache")
+public class ResponseCacheController {
+
+    public static final String TOKEN_HEADER = "X-Cache-Invalidation-Token";
+
+    private final ResponseCache responseCache;
+    private final String invalidationToken;
+
+    public ResponseCacheController(
+            ResponseCache responseCache,
+            @Value("${gateway.response-cache.invalidation-token:}") String invalidationToken) {
+        if (invalidationToken.isBlank()) {
+            throw new IllegalStateException("gateway.response-cache.invalidation-token must be set; "
+                    + "it guards the cache invalidation endpoint on the public port");
+        }
+        this.responseCache = responseCache;
+        this.invalidationToken = invalidationToken;
+    }
+
+    @PostMapping("/invalidations")
+    public ResponseEntity<InvalidationResult> invalidate(
+            @RequestHeader(name = TOKEN_HEADER, required = false) String token,
+            @RequestBody InvalidationRequest request) {
+        if (!invalidationToken.equals(token)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (request.routeId() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(new InvalidationResult(
+                responseCache.invalidate(request.routeId(), request.pathPrefixes(), request.paths())));
+    }
+
+    /**
+     * @param pathPrefixes paths to drop, each with everything below it
+     * @param paths        paths to drop with every query string but nothing below them;
+     *                     the whole route if neither is given
+     */
+    public record InvalidationRequest(String routeId, List<String> pathPrefixes, List<String> paths) {
+    }
+
+    public record InvalidationResult(int removed) {
+    }
+}
@@ -0,0 +1,216 @@
+package com.peerislands.ecommerce.cache;
+
+import com.peerislands.ecommerce.support.RecordingResponseDecorator;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves GET requests of a route from the shared {@link ResponseCache}.
+ * <p>
+ * Misses are forwarded and the upstream body is copied while it streams to the client; the
+ * response is stored once complete if it is a 200 that is small enough and that upstream did
+ * not mark {@code no-store}, {@code no-cache} or {@code private}. An upstream {@code s-maxage}
+ * or {@code max-age} shortens the route TTL. Clients can skip the lookup with
+ * {@code Cache-Control: no-cache} or bypass the cache entirely with {@code no-store}; requests
+ * carrying credentials are never cached.
+ * <pre>
+ * filters:
+ *   - name: ResponseCache
+ *     args:
+ *       ttl: 60s
+ *       excluded-paths: /api/products/*&#47;stock
+ * </pre>
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    public static final String CACHE_STATUS_HEADER = "X-Cache";
+
+    private static final Pattern MAX_AGE = Pattern.compile("(?:^|,)\\s*(s-maxage|max-age)\\s*=\\s*\"?(\\d+)");
+
+    private final ResponseCache responseCache;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCache responseCache) {
+        super(Config.class);
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("ttl");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        List<PathPattern> excluded = config.getExcludedPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        // Must wrap the response before the Netty write filter copies the upstream body into it
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            if (route == null || !isCacheable(request, excluded)) {
+                return chain.filter(exchange);
+            }
+            String routeId = route.getId();
+            ResponseCache.Resource resource = new ResponseCache.Resource(
+                    routeId, request.getPath().value(), request.getURI().getRawQuery());
+            List<String> requestCacheControl = request.getHeaders().getOrEmpty(HttpHeaders.CACHE_CONTROL);
+            if (!hasDirective(requestCacheControl, "no-cache")) {
+                List<String> vary = responseCache.varyHeaders(resource);
+                CachedResponse cached = vary == null ? null
+                        : responseCache.get(new ResponseCache.Key(resource, variant(request, vary)));
+                if (cached != null) {
+                    responseCache.recordHit(routeId);
+                    return writeCached(exchange.getResponse(), cached);
+                }
+            }
+            responseCache.recordMiss(routeId);
+            exchange.getResponse().getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            ServerHttpResponse recording = new RecordingResponse(exchange, resource, config.getTtl());
+            return chain.filter(exchange.mutate().response(recording).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private static boolean isCacheable(ServerHttpRequest request, List<PathPattern> excluded) {
+        if (request.getMethod() != HttpMethod.GET
+                || request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)
+                || request.getHeaders().containsKey(HttpHeaders.COOKIE)
+                || hasDirective(request.getHeaders().getOrEmpty(HttpHeaders.CACHE_CONTROL), "no-store")) {
+            return false;
+        }
+        return excluded.stream().noneMatch(pattern -> pattern.matches(request.getPath().pathWithinApplication()));
+    }
+
+    private static List<String> variant(ServerHttpRequest request, List<String> varyHeaders) {
+        List<String> values = new ArrayList<>(varyHeaders.size());
+        for (String header : varyHeaders) {
+            values.add(String.join(",", request.getHeaders().getOrEmpty(header)));
+        }
+        return values;
+    }
+
+    private static Mono<Void> writeCached(ServerHttpResponse response, CachedResponse cached) {
+        response.setStatusCode(HttpStatusCode.valueOf(cached.status()));
+        response.getHeaders().putAll(cached.headers());
+        long age = Duration.between(cached.storedAt(), Instant.now()).toSeconds();
+        response.getHeaders().set(HttpHeaders.AGE, Long.toString(Math.max(age, 0)));
+        response.getHeaders().set(CACHE_STATUS_HEADER, "HIT");
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+    }
+
+    private static boolean hasDirective(List<String> cacheControl, String directive) {
+        for (String value : cacheControl) {
+            for (String part : value.split(",")) {
+                String name = part.trim().toLowerCase(Locale.ROOT);
+                if (name.equals(directive) || name.startsWith(directive + "=")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * TTL for a response: the upstream {@code s-maxage} (or else {@code max-age}) when shorter
+     * than the route TTL; {@code null} when the response must not be cached.
+     */
+    static Duration ttlOf(HttpHeaders headers, Duration routeTtl) {
+        List<String> cacheControl = headers.getOrEmpty(HttpHeaders.CACHE_CONTROL);
+        if (hasDirective(cacheControl, "no-store") || hasDirective(cacheControl, "no-cache")
+                || hasDirective(cacheControl, "private") || headers.containsKey(HttpHeaders.SET_COOKIE)
+                || headers.getOrEmpty(HttpHeaders.VARY).stream().anyMatch(v -> v.contains("*"))) {
+            return null;
+        }
+        Long maxAge = null;
+        Long sharedMaxAge = null;
+        Matcher matcher = MAX_AGE.matcher(String.join(",", cacheControl).toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            long seconds = Long.parseLong(matcher.group(2));
+            if (matcher.group(1).equals("s-maxage")) {
+                sharedMaxAge = seconds;
+            } else {
+                maxAge = seconds;
+            }
+        }
+        Long upstream = sharedMaxAge != null ? sharedMaxAge : maxAge;
+        Duration ttl = upstream == null ? routeTtl : Duration.ofSeconds(Math.min(upstream, routeTtl.toSeconds()));
+        return ttl.isZero() || ttl.isNegative() ? null : ttl;
+    }
+
+    private static List<String> varyHeaderNames(HttpHeaders headers) {
+        return headers.getOrEmpty(HttpHeaders.VARY).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty())
+                .distinct()
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Stores the upstream response once it has been fully written to the client.
+     */
+    private class RecordingResponse extends RecordingResponseDecorator {
+
+        private final ServerWebExchange exchange;
+        private final ResponseCache.Resource resource;
+        private final Duration routeTtl;
+        private Duration ttl;
+
+        RecordingResponse(ServerWebExchange exchange, ResponseCache.Resource resource, Duration routeTtl) {
+            super(exchange.getResponse(), responseCache.maxEntryBytes());
+            this.exchange = exchange;
+            this.resource = resource;
+            this.routeTtl = routeTtl;
+        }
+
+        @Override
+        protected boolean shouldRecord() {
+            ttl = getStatusCode() == HttpStatus.OK ? ttlOf(getHeaders(), routeTtl) : null;
+            return ttl != null;
+        }
+
+        @Override
+        protected void onRecorded(byte[] body) {
+            HttpHeaders headers = replayableHeaders(body);
+            headers.remove(CACHE_STATUS_HEADER);
+            List<String> vary = varyHeaderNames(headers);
+            CachedResponse response = new CachedResponse(resource.routeId(), HttpStatus.OK.value(),
+                    HttpHeaders.readOnlyHttpHeaders(headers), body, Instant.now(), ttl);
+            responseCache.put(new ResponseCache.Key(resource, variant(exchange.getRequest(), vary)), vary, response);
+        }
+    }
+
+    @Data
+    public static class Config {
+        private Duration ttl = Duration.ofSeconds(60);
+        private List<String> excludedPaths = new ArrayList<>();
+    }
+}
@@ -0,0 +1,170 @@
+package com.peerislands.ecommerce.coalesce;
+
+import com.peerislands.ecommerce.support.RecordingResponseDecorator;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collapses identical concurrent GET and HEAD requests of a route into one upstream call.
+ * <p>
+ * The first request for a key (method, path, query and content negotiation headers) is
+ * forwarded; requests arriving while it is in flight wait for its response and are answered
+ * with a copy. The key is released as soon as the response completes, so a later request
+ * always goes upstream and nothing is served that was not in flight when it arrived. Waiters
+ * go upstream themselves if the shared call fails, is not complete within {@code max-wait},
+ * or its body is larger than {@code gateway.coalescing.max-body-size}. Requests carrying
+ * credentials are never shared.
+ */
+@Component
+public class RequestCoalescingGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    private static final List<String> KEY_HEADERS = List.of(
+            HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ACCEPT_LANGUAGE);
+
+    private final Map<FlightKey, Flight> flights = new ConcurrentHashMap<>();
+    private final long maxBodyBytes;
+    private final MeterRegistry registry;
+
+    public RequestCoalescingGatewayFilterFactory(
+            @Value("${gateway.coalescing.max-body-size:1MB}") DataSize maxBodySize,
+            MeterRegistry registry) {
+        super(Config.class);
+        this.maxBodyBytes = maxBodySize.toBytes();
+        this.registry = registry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("maxWait");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // Must wrap the response before the Netty write filter copies the upstream body into it
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            if (route == null || !isCoalescable(exchange.getRequest())) {
+                return chain.filter(exchange);
+            }
+            FlightKey key = keyOf(route.getId(), exchange.getRequest());
+            Flight flight = new Flight();
+            Flight existing = flights.putIfAbsent(key, flight);
+            if (existing != null) {
+                return follow(existing, exchange, chain, route.getId(), config.getMaxWait());
+            }
+            count(route.getId(), "leader");
+            LeaderResponse response = new LeaderResponse(exchange.getResponse(), key, flight);
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> response.abandon());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private Mono<Void> follow(Flight flight, ServerWebExchange exchange, GatewayFilterChain chain,
+                              String routeId, Duration maxWait) {
+        // Only failures to obtain the shared response fall back; a failed write must not be retried
+        return flight.result.asMono()
+                .timeout(maxWait)
+                .onErrorResume(e -> Mono.empty())
+                .map(shared -> {
+                    count(routeId, "follower");
+                    ServerHttpResponse response = exchange.getResponse();
+                    response.setStatusCode(shared.status());
+                    response.getHeaders().putAll(shared.headers());
+                    return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(shared.body())));
+                })
+                .defaultIfEmpty(Mono.defer(() -> {
+                    count(routeId, "fallback");
+                    return chain.filter(exchange);
+                }))
+                .flatMap(write -> write);
+    }
+
+    private static boolean isCoalescable(ServerHttpRequest request) {
+        HttpMethod method = request.getMethod();
+        return (method == HttpMethod.GET || method == HttpMethod.HEAD)
+                && !request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)
+                && !request.getHeaders().containsKey(HttpHeaders.COOKIE);
+    }
+
+    private static FlightKey keyOf(String routeId, ServerHttpRequest request) {
+        List<String> headers = KEY_HEADERS.stream()
+                .map(name -> String.join(",", request.getHeaders().getOrEmpty(name)))
+                .toList();
+        return new FlightKey(routeId, request.getMethod(), request.getPath().value(),
+                request.getURI().getRawQuery(), headers);
+    }
+
+    private void count(String routeId, String role) {
+        registry.counter("gateway.coalescing.requests", "route", routeId, "role", role).increment();
+    }
+
+    private record FlightKey(String routeId, HttpMethod method, String path, String query, List<String> headers) {
+    }
+
+    private record SharedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+    }
+
+    private static final class Flight {
+        private final Sinks.One<SharedResponse> result = Sinks.one();
+    }
+
+    /**
+     * Response of the forwarded request, whose copy is handed to the waiting requests.
+     */
+    private class LeaderResponse extends RecordingResponseDecorator {
+
+        private final FlightKey key;
+        private final Flight flight;
+
+        LeaderResponse(ServerHttpResponse delegate, FlightKey key, Flight flight) {
+            super(delegate, maxBodyBytes);
+            this.key = key;
+            this.flight = flight;
+        }
+
+        @Override
+        protected void onRecorded(byte[] body) {
+            // Released before publishing so requests arriving from now on are forwarded afresh
+            flights.remove(key, flight);
+            HttpHeaders headers = HttpHeaders.readOnlyHttpHeaders(replayableHeaders(body));
+            HttpStatusCode status = getStatusCode() == null ? HttpStatus.OK : getStatusCode();
+            flight.result.tryEmitValue(new SharedResponse(status, headers, body));
+        }
+
+        @Override
+        protected void onNotRecorded() {
+            flights.remove(key, flight);
+            flight.result.tryEmitError(new IllegalStateException("Shared response unavailable"));
+        }
+    }
+
+    @Data
+    public static class Config {
+        private Duration maxWait = Duration.ofSeconds(1);
+    }
+}
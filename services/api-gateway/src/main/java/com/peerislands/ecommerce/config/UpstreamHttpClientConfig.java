@@ -0,0 +1,25 @@
+package com.peerislands.ecommerce.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+
+/**
+ * Protocols the gateway speaks to the services it routes to.
+ * <p>
+ * With {@code H2C} alone, connections start as cleartext HTTP/2 straight away and every
+ * request to a service instance becomes a stream on a few shared connections. Listing
+ * {@code HTTP11} as well upgrades each connection from HTTP/1.1 instead, which also works
+ * with services that only speak HTTP/1.1.
+ */
+@Configuration
+public class UpstreamHttpClientConfig {
+
+    @Bean
+    public HttpClientCustomizer upstreamProtocolCustomizer(
+            @Value("${gateway.upstream.protocols:H2C,HTTP11}") HttpProtocol[] protocols) {
+        return httpClient -> httpClient.protocol(protocols);
+    }
+}
@@ -0,0 +1,249 @@
+package com.peerislands.ecommerce.hedge;
+
+import com.peerislands.ecommerce.loadbalancer.PeakEwmaLoadBalancer;
+import com.peerislands.ecommerce.resilience.RetryBudget;
+import com.peerislands.ecommerce.support.UpstreamAttempts;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerUriTools;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sends a second copy of a GET or HEAD request to another instance of the service when the
+ * first has not answered within {@code delay}, and answers with whichever responds first.
+ * <p>
+ * With {@code percentile} set, the delay follows that percentile of the route's recent
+ * response times, with {@code delay} as its floor. The losing request is cancelled. Hedges
+ * are drawn from one budget shared by all routes, a {@code gateway.hedging.budget-ratio} of
+ * the hedgeable requests plus {@code min-hedges-per-second}, so hedging stops adding load
+ * once a service is slow everywhere. A hedge answering with a 5xx or failing is ignored, and
+ * once the first request has its response it is always the one used. Hedge responses are
+ * buffered, so they are limited to the WebClient's in-memory codec size. Paths matching
+ * {@code excluded-paths} are never hedged, for GET endpoints that are not safe to repeat.
+ * <pre>
+ * filters:
+ *   - name: Hedge
+ *     args:
+ *       delay: 20ms
+ *       percentile: 0.95
+ *       excluded-paths: /api/carts/*&#47;checkout
+ * </pre>
+ */
+@Component
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    private final WebClient webClient;
+    private final LoadBalancerClientFactory clientFactory;
+    private final RetryBudget budget;
+    private final MeterRegistry registry;
+
+    @Autowired
+    public HedgeGatewayFilterFactory(WebClient webClient, LoadBalancerClientFactory clientFactory,
+                                     @Value("${gateway.hedging.budget-ratio:0.05}") double budgetRatio,
+                                     @Value("${gateway.hedging.min-hedges-per-second:1}") int minHedgesPerSecond,
+                                     MeterRegistry registry) {
+        this(webClient, clientFactory, new RetryBudget(budgetRatio, minHedgesPerSecond, System::nanoTime), registry);
+    }
+
+    HedgeGatewayFilterFactory(WebClient webClient, LoadBalancerClientFactory clientFactory,
+                              RetryBudget budget, MeterRegistry registry) {
+        super(Config.class);
+        this.webClient = webClient;
+        this.clientFactory = clientFactory;
+        this.budget = budget;
+        this.registry = registry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("delay", "percentile");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId();
+        LatencyQuantile quantile = config.getPercentile() > 0
+                ? new LatencyQuantile(config.getPercentile(), Clock.SYSTEM) : null;
+        Counter sent = hedges(routeId, "sent");
+        Counter won = hedges(routeId, "won");
+        Counter denied = hedges(routeId, "budget-exhausted");
+        List<PathPattern> excluded = config.getExcludedPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if ((request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD)
+                    || excluded.stream().anyMatch(pattern -> pattern.matches(request.getPath().pathWithinApplication()))) {
+                return chain.filter(exchange);
+            }
+            budget.recordRequest();
+            long start = System.nanoTime();
+            Mono<Optional<ResponseEntity<byte[]>>> first = chain.filter(exchange)
+                    .doOnSuccess(done -> record(quantile, start))
+                    .doOnCancel(() -> record(quantile, start))
+                    .thenReturn(Optional.empty());
+            Mono<Optional<ResponseEntity<byte[]>>> second = Mono.delay(delayOf(config, quantile))
+                    .flatMap(tick -> hedge(exchange, sent, denied))
+                    .map(Optional::of);
+            // The first request is cancelled as soon as the hedge wins, before its attempt is discarded
+            return Mono.firstWithSignal(first, second).flatMap(hedged -> {
+                if (hedged.isEmpty()) {
+                    return Mono.empty();
+                }
+                won.increment();
+                UpstreamAttempts.discard(exchange);
+                return write(exchange.getResponse(), hedged.get());
+            });
+        };
+    }
+
+    /**
+     * Sends the hedge, completing only with a response worth answering with; otherwise never
+     * completes, leaving the first request to answer.
+     */
+    private Mono<ResponseEntity<byte[]>> hedge(ServerWebExchange exchange, Counter sent, Counter denied) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        URI requestUrl = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        Response<ServiceInstance> first = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (route == null || requestUrl == null || first == null || !first.hasServer() || hasResponded(exchange)) {
+            return Mono.never();
+        }
+        String serviceId = route.getUri().getHost();
+        ServiceInstanceListSupplier supplier = clientFactory.getInstance(serviceId, ServiceInstanceListSupplier.class);
+        if (supplier == null) {
+            return Mono.never();
+        }
+        PeakEwmaLoadBalancer balancer = clientFactory.getInstance(serviceId) instanceof PeakEwmaLoadBalancer peakEwma
+                ? peakEwma : null;
+        return supplier.get().next()
+                .mapNotNull(instances -> pick(instances, first.getServer(), balancer))
+                .flatMap(instance -> {
+                    if (!budget.tryRetry()) {
+                        denied.increment();
+                        return Mono.empty();
+                    }
+                    sent.increment();
+                    return send(exchange.getRequest(), LoadBalancerUriTools.reconstructURI(instance, requestUrl),
+                            instance, balancer);
+                })
+                .filter(response -> !response.getStatusCode().is5xxServerError() && !hasResponded(exchange))
+                .onErrorResume(e -> Mono.empty())
+                .switchIfEmpty(Mono.never());
+    }
+
+    private Mono<ResponseEntity<byte[]>> send(ServerHttpRequest request, URI uri, ServiceInstance instance,
+                                              PeakEwmaLoadBalancer balancer) {
+        long start = System.nanoTime();
+        if (balancer != null) {
+            balancer.onStart(instance);
+        }
+        return webClient.method(request.getMethod())
+                .uri(uri)
+                .headers(headers -> {
+                    headers.putAll(request.getHeaders());
+                    headers.remove(HttpHeaders.HOST);
+                    UpstreamAttempts.HOP_BY_HOP_HEADERS.forEach(headers::remove);
+                })
+                .exchangeToMono(response -> response.toEntity(byte[].class))
+                .doOnNext(response -> report(balancer, instance, start, response.getStatusCode().is5xxServerError()))
+                .doOnError(e -> report(balancer, instance, start, true))
+                .doOnCancel(() -> report(balancer, instance, start, false));
+    }
+
+    private static ServiceInstance pick(List<ServiceInstance> instances, ServiceInstance first,
+                                        PeakEwmaLoadBalancer balancer) {
+        List<ServiceInstance> others = instances.stream()
+                .filter(instance -> !sameInstance(instance, first))
+                .toList();
+        if (others.isEmpty()) {
+            return null;
+        }
+        return balancer != null ? balancer.choose(others) : others.get(ThreadLocalRandom.current().nextInt(others.size()));
+    }
+
+    private static boolean sameInstance(ServiceInstance a, ServiceInstance b) {
+        if (a.getInstanceId() != null && b.getInstanceId() != null) {
+            return a.getInstanceId().equals(b.getInstanceId());
+        }
+        return a.getHost().equals(b.getHost()) && a.getPort() == b.getPort();
+    }
+
+    // The routing filter sets this once the first request has its response headers
+    private static boolean hasResponded(ServerWebExchange exchange) {
+        return exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR) != null
+                || exchange.getResponse().isCommitted();
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, ResponseEntity<byte[]> hedged) {
+        response.setStatusCode(hedged.getStatusCode());
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(hedged.getHeaders());
+        UpstreamAttempts.HOP_BY_HOP_HEADERS.forEach(headers::remove);
+        response.getHeaders().putAll(headers);
+        byte[] body = hedged.getBody() == null ? new byte[0] : hedged.getBody();
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+
+    private static Duration delayOf(Config config, LatencyQuantile quantile) {
+        Duration estimate = quantile == null ? null : quantile.estimate();
+        return estimate != null && estimate.compareTo(config.getDelay()) > 0 ? estimate : config.getDelay();
+    }
+
+    private static void record(LatencyQuantile quantile, long start) {
+        if (quantile != null) {
+            quantile.record(System.nanoTime() - start);
+        }
+    }
+
+    private static void report(PeakEwmaLoadBalancer balancer, ServiceInstance instance, long start, boolean failed) {
+        if (balancer != null) {
+            balancer.onComplete(instance, System.nanoTime() - start, failed);
+        }
+    }
+
+    private Counter hedges(String routeId, String result) {
+        return Counter.builder("gateway.hedges")
+                .tag("route", routeId == null ? "unknown" : routeId)
+                .tag("result", result)
+                .description("Hedged requests sent, answered first, or refused by the hedge budget")
+                .register(registry);
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private Duration delay = Duration.ofMillis(50);
+        private double percentile;
+        private List<String> excludedPaths = new ArrayList<>();
+        private String routeId;
+    }
+}
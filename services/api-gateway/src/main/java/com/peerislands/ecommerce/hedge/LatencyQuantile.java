@@ -0,0 +1,74 @@
+package com.peerislands.ecommerce.hedge;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.TimeWindowPercentileHistogram;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running estimate of a response time percentile over the last {@link #WINDOW}, recomputed
+ * every {@link #REFRESH_INTERVAL} once at least {@link #MIN_SAMPLES} responses were recorded
+ * since the previous refresh.
+ * <p>
+ * Recording is lock free; the recording thread that finds the refresh due recomputes and
+ * publishes the estimate.
+ */
+class LatencyQuantile {
+
+    static final Duration WINDOW = Duration.ofSeconds(30);
+    static final Duration REFRESH_INTERVAL = Duration.ofSeconds(5);
+    static final long MIN_SAMPLES = 100;
+
+    private final Clock clock;
+    private final TimeWindowPercentileHistogram histogram;
+    private final LongAdder samples = new LongAdder();
+    private final AtomicLong nextRefresh;
+    private volatile long estimateNanos = -1;
+
+    LatencyQuantile(double percentile, Clock clock) {
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1");
+        }
+        this.clock = clock;
+        DistributionStatisticConfig config = DistributionStatisticConfig.builder()
+                .percentiles(percentile)
+                .percentilePrecision(2)
+                .expiry(WINDOW)
+                .bufferLength(3)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+        this.histogram = new TimeWindowPercentileHistogram(clock, config, false);
+        this.nextRefresh = new AtomicLong(clock.monotonicTime() + REFRESH_INTERVAL.toNanos());
+    }
+
+    void record(long nanos) {
+        histogram.recordLong(Math.max(nanos, 0));
+        samples.increment();
+        long now = clock.monotonicTime();
+        long next = nextRefresh.get();
+        if (now - next >= 0 && nextRefresh.compareAndSet(next, now + REFRESH_INTERVAL.toNanos())) {
+            refresh();
+        }
+    }
+
+    /**
+     * The current estimate, or {@code null} while too few responses have been seen.
+     */
+    Duration estimate() {
+        long nanos = estimateNanos;
+        return nanos < 0 ? null : Duration.ofNanos(nanos);
+    }
+
+    private void refresh() {
+        if (samples.sumThenReset() < MIN_SAMPLES) {
+            return;
+        }
+        HistogramSnapshot snapshot = histogram.takeSnapshot(0, 0, 0);
+        estimateNanos = (long) snapshot.percentileValues()[0].value(TimeUnit.NANOSECONDS);
+    }
+}
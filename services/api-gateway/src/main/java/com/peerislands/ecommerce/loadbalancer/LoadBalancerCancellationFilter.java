@@ -0,0 +1,56 @@
+package com.peerislands.ecommerce.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Reports requests cancelled before their response arrived to the {@link PeakEwmaLoadBalancer}.
+ * <p>
+ * The routing filter only reports completed and failed requests, so without this a request
+ * given up by a timeout, a hedge or the client would count as in flight on its instance for
+ * good. The time waited until the cancellation is recorded as the response time, so an
+ * instance slow enough to be given up on is avoided like any other slow instance.
+ */
+@Component
+public class LoadBalancerCancellationFilter implements GlobalFilter, Ordered {
+
+    private final LoadBalancerClientFactory clientFactory;
+
+    public LoadBalancerCancellationFilter(LoadBalancerClientFactory clientFactory) {
+        this.clientFactory = clientFactory;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        URI url = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        if (url == null || !"lb".equals(url.getScheme()) || url.getHost() == null) {
+            return chain.filter(exchange);
+        }
+        String serviceId = url.getHost();
+        long start = System.nanoTime();
+        return chain.filter(exchange).doOnCancel(() -> {
+            Response<ServiceInstance> lbResponse =
+                    exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+            if (lbResponse != null && lbResponse.hasServer()
+                    && clientFactory.getInstance(serviceId) instanceof PeakEwmaLoadBalancer balancer) {
+                balancer.onComplete(lbResponse.getServer(), System.nanoTime() - start, false);
+            }
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER - 1;
+    }
+}
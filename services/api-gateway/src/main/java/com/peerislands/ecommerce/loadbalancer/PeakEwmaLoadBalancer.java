@@ -0,0 +1,175 @@
+package com.peerislands.ecommerce.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Picks the cheaper of two random instances of a service, where the cost of an instance is its
+ * peak-EWMA response time multiplied by its requests in flight.
+ * <p>
+ * A response slower than the current estimate replaces it at once, faster ones pull it down
+ * gradually, so a slow or pausing instance is avoided as soon as it shows and only regains
+ * traffic once it answers quickly again. Estimates also decay while an instance receives no
+ * traffic, so an instance avoided after a slow spell is tried again later. Failed requests
+ * count as taking {@code failure-penalty}. Response times are fed back through the load
+ * balancer lifecycle by the gateway's routing filter.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> suppliers;
+    private final double decayNanos;
+    private final long failurePenaltyNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, InstanceStats> stats = new ConcurrentHashMap<>();
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers,
+                                Duration decayTime, Duration failurePenalty) {
+        this(suppliers, decayTime, failurePenalty, System::nanoTime);
+    }
+
+    PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers, Duration decayTime,
+                         Duration failurePenalty, LongSupplier nanoClock) {
+        this.suppliers = suppliers;
+        this.decayNanos = decayTime.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = suppliers.getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(instances -> {
+            if (instances.isEmpty()) {
+                return new EmptyResponse();
+            }
+            ServiceInstance chosen = choose(instances);
+            if (supplier instanceof SelectedInstanceCallback callback) {
+                callback.selectedServiceInstance(chosen);
+            }
+            return new DefaultResponse(chosen);
+        });
+    }
+
+    public ServiceInstance choose(List<ServiceInstance> instances) {
+        if (instances.size() == 1) {
+            return instances.get(0);
+        }
+        if (stats.size() > instances.size() * 2) {
+            forgetRemoved(instances);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        long now = nanoClock.getAsLong();
+        return stats(a).cost(now) <= stats(b).cost(now) ? a : b;
+    }
+
+    public void onStart(ServiceInstance instance) {
+        stats(instance).outstanding.incrementAndGet();
+    }
+
+    public void onComplete(ServiceInstance instance, long responseNanos, boolean failed) {
+        InstanceStats instanceStats = stats(instance);
+        instanceStats.outstanding.decrementAndGet();
+        instanceStats.observe(failed ? Math.max(responseNanos, failurePenaltyNanos) : responseNanos, nanoClock.getAsLong());
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (lbResponse.hasServer()) {
+            request.getContext().setRequestStartTime(nanoClock.getAsLong());
+            onStart(lbResponse.getServer());
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        long start = completionContext.getLoadBalancerRequest().getContext().getRequestStartTime();
+        boolean failed = completionContext.status() == CompletionContext.Status.FAILED
+                || (completionContext.getClientResponse() != null
+                && completionContext.getClientResponse().getHttpStatus() != null
+                && completionContext.getClientResponse().getHttpStatus().is5xxServerError());
+        onComplete(lbResponse.getServer(), nanoClock.getAsLong() - start, failed);
+    }
+
+    private InstanceStats stats(ServiceInstance instance) {
+        return stats.computeIfAbsent(keyOf(instance), key -> new InstanceStats());
+    }
+
+    private void forgetRemoved(List<ServiceInstance> instances) {
+        Set<String> current = new HashSet<>();
+        instances.forEach(instance -> current.add(keyOf(instance)));
+        stats.keySet().retainAll(current);
+    }
+
+    private static String keyOf(ServiceInstance instance) {
+        return instance.getInstanceId() != null ? instance.getInstanceId() : instance.getHost() + ":" + instance.getPort();
+    }
+
+    private final class InstanceStats {
+
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double ewmaNanos;
+        private long stamp;
+
+        synchronized void observe(long responseNanos, long now) {
+            if (responseNanos > ewmaNanos) {
+                ewmaNanos = responseNanos;
+            } else {
+                double weight = Math.exp(-Math.max(now - stamp, 0) / decayNanos);
+                ewmaNanos = ewmaNanos * weight + responseNanos * (1 - weight);
+            }
+            stamp = now;
+        }
+
+        double cost(long now) {
+            double latency;
+            synchronized (this) {
+                latency = ewmaNanos * Math.exp(-Math.max(now - stamp, 0) / decayNanos);
+            }
+            int inFlight = outstanding.get();
+            if (latency == 0 && inFlight > 0) {
+                // Busy but no response seen yet: as costly as a failure until one arrives
+                return failurePenaltyNanos + inFlight;
+            }
+            return latency * (inFlight + 1);
+        }
+    }
+}
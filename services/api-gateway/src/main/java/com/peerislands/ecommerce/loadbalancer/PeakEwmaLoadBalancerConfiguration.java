@@ -0,0 +1,30 @@
+package com.peerislands.ecommerce.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Per-service load balancer configuration, registered for every service through
+ * {@code @LoadBalancerClients} rather than component scanning. The bean is declared with its
+ * own type so the gateway also finds it as a load balancer lifecycle.
+ */
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public PeakEwmaLoadBalancer peakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> suppliers,
+                                                     Environment environment) {
+        // Per-service contexts have no Boot conversion service, so durations are parsed here
+        return new PeakEwmaLoadBalancer(suppliers,
+                duration(environment, "gateway.load-balancer.decay-time", "10s"),
+                duration(environment, "gateway.load-balancer.failure-penalty", "1s"));
+    }
+
+    private static Duration duration(Environment environment, String property, String defaultValue) {
+        return DurationStyle.detectAndParse(environment.getProperty(property, defaultValue));
+    }
+}
@@ -0,0 +1,133 @@
+package com.peerislands.ecommerce.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records how long every routed request takes, per route, upstream instance and status class,
+ * as {@code gateway.route.latency}.
+ * <p>
+ * Timers keep an HdrHistogram of the last {@code distribution-expiry} and publish the
+ * configured percentiles along with histogram buckets, so Prometheus can aggregate tail
+ * latency across gateway instances. Requests answered by the gateway itself, such as cache
+ * hits and rejections, have instance {@code none}; requests the client abandoned have status
+ * {@code cancelled}. Timers are looked up by the route and instance strings already held by
+ * the exchange, so recording a request does not allocate.
+ */
+@Component
+public class RouteLatencyMetricsFilter implements GlobalFilter, Ordered {
+
+    static final String METRIC = "gateway.route.latency";
+    static final String NO_INSTANCE = "none";
+
+    // Index 0 is for cancelled requests, 1 to 5 for the status classes
+    private static final String[] STATUS_CLASSES = {"cancelled", "1xx", "2xx", "3xx", "4xx", "5xx"};
+    private static final int CANCELLED = 0;
+    private static final int SERVER_ERROR = 5;
+
+    private final MeterRegistry registry;
+    private final double[] percentiles;
+    private final Duration expiry;
+    private final Map<String, Map<String, AtomicReferenceArray<Timer>>> timers = new ConcurrentHashMap<>();
+
+    public RouteLatencyMetricsFilter(
+            MeterRegistry registry,
+            @Value("${gateway.metrics.percentiles:0.5,0.99,0.999}") double[] percentiles,
+            @Value("${gateway.metrics.distribution-expiry:1m}") Duration expiry) {
+        this.registry = registry;
+        this.percentiles = percentiles;
+        this.expiry = expiry;
+    }
+
+    @Override
+    public int getOrder() {
+        // Ahead of every other filter so rejections and cache hits are measured as well
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnError(error -> record(exchange, start, statusClassOf(error)))
+                .doFinally(signal -> {
+                    if (signal == SignalType.ON_COMPLETE) {
+                        record(exchange, start, statusClassOf(exchange.getResponse().getStatusCode()));
+                    } else if (signal == SignalType.CANCEL) {
+                        record(exchange, start, CANCELLED);
+                    }
+                });
+    }
+
+    private void record(ServerWebExchange exchange, long start, int statusClass) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return;
+        }
+        timer(route.getId(), instanceOf(exchange), statusClass).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String routeId, String instance, int statusClass) {
+        AtomicReferenceArray<Timer> byStatus = timers
+                .computeIfAbsent(routeId, id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(instance, id -> new AtomicReferenceArray<>(STATUS_CLASSES.length));
+        Timer timer = byStatus.get(statusClass);
+        if (timer == null) {
+            // Registering twice yields the same timer, so racing threads need no coordination
+            timer = Timer.builder(METRIC)
+                    .tag("route", routeId)
+                    .tag("instance", instance)
+                    .tag("status", STATUS_CLASSES[statusClass])
+                    .description("Time to answer routed requests")
+                    .publishPercentiles(percentiles)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .distributionStatisticExpiry(expiry)
+                    .register(registry);
+            byStatus.set(statusClass, timer);
+        }
+        return timer;
+    }
+
+    private static String instanceOf(ServerWebExchange exchange) {
+        Response<ServiceInstance> response = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (response == null || !response.hasServer()) {
+            return NO_INSTANCE;
+        }
+        ServiceInstance instance = response.getServer();
+        return instance.getInstanceId() != null ? instance.getInstanceId() : instance.getHost() + ":" + instance.getPort();
+    }
+
+    private static int statusClassOf(HttpStatusCode status) {
+        if (status == null) {
+            return 2;
+        }
+        int statusClass = status.value() / 100;
+        return statusClass >= 1 && statusClass <= SERVER_ERROR ? statusClass : SERVER_ERROR;
+    }
+
+    private static int statusClassOf(Throwable error) {
+        return error instanceof ResponseStatusException e ? statusClassOf(e.getStatusCode()) : SERVER_ERROR;
+    }
+}
@@ -0,0 +1,106 @@
+package com.peerislands.ecommerce.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * Limits how fast each client may call a route, using the gateway instance's own
+ * {@link TokenBucketRateLimiter} rather than a shared store.
+ * <p>
+ * Clients are told apart by their IP address. Nothing verifies API key or user id headers
+ * before this filter, so keying on them would give a caller sending a new value per request
+ * a fresh bucket each time. Requests over the limit are answered with 429 and a
+ * {@code Retry-After} in whole seconds without reaching the service. Limits apply per gateway
+ * instance.
+ * <pre>
+ * filters:
+ *   - name: LocalRateLimiter
+ *     args:
+ *       replenish-rate: 20
+ *       burst-capacity: 40
+ * </pre>
+ */
+@Component
+public class LocalRateLimiterGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<LocalRateLimiterGatewayFilterFactory.Config> {
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    private final TokenBucketRateLimiter rateLimiter;
+    private final MeterRegistry registry;
+
+    public LocalRateLimiterGatewayFilterFactory(TokenBucketRateLimiter rateLimiter, MeterRegistry registry) {
+        super(Config.class);
+        this.rateLimiter = rateLimiter;
+        this.registry = registry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("replenishRate", "burstCapacity", "requestedTokens");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId();
+        TokenBucketRateLimiter.Limit limit = new TokenBucketRateLimiter.Limit(
+                config.getReplenishRate(), config.getBurstCapacity(), config.getRequestedTokens());
+        // Looked up once per route, this runs on every request
+        Counter allowed = decisions(routeId, "allowed");
+        Counter rejected = decisions(routeId, "rejected");
+        // Ahead of the response cache and coalescing, so served-from-gateway requests count too
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            TokenBucketRateLimiter.Decision decision =
+                    rateLimiter.tryAcquire(routeId, clientKey(exchange.getRequest()), limit);
+            ServerHttpResponse response = exchange.getResponse();
+            response.getHeaders().set(REMAINING_HEADER, Long.toString(decision.remaining()));
+            if (decision.allowed()) {
+                allowed.increment();
+                return chain.filter(exchange);
+            }
+            rejected.increment();
+            long retryAfterSeconds = Math.max(1, (decision.retryAfter().toMillis() + 999) / 1000);
+            response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+            response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+            return response.setComplete();
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 2);
+    }
+
+    static String clientKey(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        if (remote == null) {
+            return "ip:unknown";
+        }
+        return "ip:" + (remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString());
+    }
+
+    private Counter decisions(String routeId, String result) {
+        return Counter.builder("gateway.ratelimit.requests")
+                .tag("route", routeId == null ? "unknown" : routeId)
+                .tag("result", result)
+                .description("Requests by whether the local rate limiter let them through")
+                .register(registry);
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private int replenishRate = 10;
+        private int burstCapacity = 20;
+        private int requestedTokens = 1;
+        private String routeId;
+    }
+}
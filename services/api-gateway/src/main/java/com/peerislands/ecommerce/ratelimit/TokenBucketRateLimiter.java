@@ -0,0 +1,103 @@
+package com.peerislands.ecommerce.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory token buckets, one per route and client, shared by every route using the
+ * {@code LocalRateLimiter} filter.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the generic cell rate form of a token bucket), so a decision is one compare-and-set with no
+ * lock and no background refill. Buckets idle for longer than {@code idle-timeout} are dropped;
+ * a dropped bucket comes back full, which is what it would have refilled to anyway as long as
+ * the timeout exceeds the time a route takes to refill its burst.
+ */
+@Component
+public class TokenBucketRateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final Cache<BucketKey, AtomicLong> buckets;
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public TokenBucketRateLimiter(
+            @Value("${gateway.rate-limiter.max-buckets:1000000}") long maxBuckets,
+            @Value("${gateway.rate-limiter.idle-timeout:10m}") Duration idleTimeout) {
+        this(maxBuckets, idleTimeout, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(long maxBuckets, Duration idleTimeout, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(idleTimeout)
+                .executor(Runnable::run)
+                .build();
+    }
+
+    /**
+     * Takes {@code limit.requestedTokens()} from the client's bucket for the route if it holds
+     * that many.
+     */
+    public Decision tryAcquire(String routeId, String clientKey, Limit limit) {
+        long now = nanoClock.getAsLong();
+        AtomicLong bucket = buckets.get(new BucketKey(routeId, clientKey), key -> new AtomicLong(now));
+        long interval = limit.nanosPerToken();
+        long cost = interval * limit.requestedTokens();
+        long capacity = interval * limit.burstCapacity();
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + cost;
+            long debt = next - now;
+            if (debt > capacity) {
+                long remaining = Math.max(capacity - (fullAt - now), 0) / interval;
+                return new Decision(false, remaining, Duration.ofNanos(debt - capacity));
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return new Decision(true, (capacity - debt) / interval, Duration.ZERO);
+            }
+        }
+    }
+
+    long bucketCount() {
+        buckets.cleanUp();
+        return buckets.estimatedSize();
+    }
+
+    /**
+     * Refill rate in tokens per second, bucket size and cost of one request.
+     */
+    public record Limit(int replenishRate, int burstCapacity, int requestedTokens) {
+
+        public Limit {
+            if (replenishRate <= 0 || requestedTokens <= 0 || burstCapacity < requestedTokens) {
+                throw new IllegalArgumentException("Rate limit needs a positive replenish rate and requested tokens, "
+                        + "and a burst capacity of at least the requested tokens");
+            }
+        }
+
+        long nanosPerToken() {
+            return Math.max(NANOS_PER_SECOND / replenishRate, 1);
+        }
+    }
+
+    /**
+     * Outcome of one request: whether it may proceed, the tokens left and, when rejected, how
+     * long until enough tokens have been refilled.
+     */
+    public record Decision(boolean allowed, long remaining, Duration retryAfter) {
+    }
+
+    private record BucketKey(String routeId, String clientKey) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.peerislands.ecommerce.resilience;
+
+import com.peerislands.ecommerce.support.UpstreamAttempts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.cloud.gateway.support.ServiceUnavailableException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Retries failed GET, HEAD and OPTIONS requests of a route on another attempt through the load
+ * balancer, within the route's {@link RetryBudget}.
+ * <p>
+ * A request is retried when upstream answers with one of {@code statuses}, times out, or the
+ * connection fails. Requests rejected because the route's circuit breaker is open, or because
+ * no instance is available, are not retried, nor are paths matching {@code excluded-paths},
+ * for GET endpoints that are not safe to repeat. Placed before {@code CircuitBreaker} in the
+ * route's filters so that each attempt is timed and counted by the breaker.
+ * <pre>
+ * filters:
+ *   - name: BudgetedRetry
+ *     args:
+ *       retries: 2
+ *       retry-ratio: 0.2
+ *       min-retries-per-second: 5
+ *       excluded-paths: /api/carts/*&#47;checkout
+ * </pre>
+ */
+@Component
+public class BudgetedRetryGatewayFilterFactory
+        extends AbstractGatewayFilterFactory<BudgetedRetryGatewayFilterFactory.Config> {
+
+    private static final Set<HttpMethod> SAFE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+
+    private final MeterRegistry registry;
+
+    public BudgetedRetryGatewayFilterFactory(MeterRegistry registry) {
+        super(Config.class);
+        this.registry = registry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("retries", "retryRatio", "minRetriesPerSecond");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        RetryBudget budget = new RetryBudget(config.getRetryRatio(), config.getMinRetriesPerSecond(), System::nanoTime);
+        String routeId = config.getRouteId() == null ? "unknown" : config.getRouteId();
+        Counter retried = retries(routeId, "retried");
+        Counter exhausted = retries(routeId, "budget-exhausted");
+        List<PathPattern> excluded = config.getExcludedPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        return (exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (!SAFE_METHODS.contains(request.getMethod())
+                    || excluded.stream().anyMatch(pattern -> pattern.matches(request.getPath().pathWithinApplication()))) {
+                return chain.filter(exchange);
+            }
+            budget.recordRequest();
+            return attempt(exchange, chain, config, 0, () -> {
+                if (budget.tryRetry()) {
+                    retried.increment();
+                    return true;
+                }
+                exhausted.increment();
+                return false;
+            });
+        };
+    }
+
+    private Mono<Void> attempt(ServerWebExchange exchange, GatewayFilterChain chain, Config config,
+                               int retriesDone, RetryPermit permit) {
+        return chain.filter(exchange)
+                .then(Mono.<Optional<Throwable>>empty())
+                .onErrorResume(error -> Mono.just(Optional.of(error)))
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(error -> {
+                    boolean failed = error.map(e -> isRetryable(e, config))
+                            .orElseGet(() -> isRetryable(exchange.getResponse().getStatusCode(), config));
+                    if (failed && retriesDone < config.getRetries()
+                            && !exchange.getResponse().isCommitted() && permit.tryAcquire()) {
+                        UpstreamAttempts.discard(exchange);
+                        return attempt(exchange, chain, config, retriesDone + 1, permit);
+                    }
+                    return error.map(Mono::<Void>error).orElseGet(Mono::empty);
+                });
+    }
+
+    private static boolean isRetryable(HttpStatusCode status, Config config) {
+        return status != null && config.getStatuses().contains(HttpStatus.resolve(status.value()));
+    }
+
+    private static boolean isRetryable(Throwable error, Config config) {
+        if (error instanceof ServiceUnavailableException || error instanceof NotFoundException) {
+            return false;
+        }
+        if (error instanceof ResponseStatusException e) {
+            return isRetryable(e.getStatusCode(), config);
+        }
+        return error instanceof IOException || error instanceof TimeoutException;
+    }
+
+    private Counter retries(String routeId, String result) {
+        return Counter.builder("gateway.retries")
+                .tag("route", routeId)
+                .tag("result", result)
+                .description("Retry attempts by whether the route's retry budget allowed them")
+                .register(registry);
+    }
+
+    @FunctionalInterface
+    private interface RetryPermit {
+        boolean tryAcquire();
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private int retries = 2;
+        private List<HttpStatus> statuses = new ArrayList<>(List.of(
+                HttpStatus.BAD_GATEWAY, HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.GATEWAY_TIMEOUT));
+        private double retryRatio = 0.2;
+        private int minRetriesPerSecond = 5;
+        private List<String> excludedPaths = new ArrayList<>();
+        private String routeId;
+    }
+}
@@ -0,0 +1,65 @@
+package com.peerislands.ecommerce.resilience;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Caps the requests a route has in flight upstream, so a slow service cannot tie up the
+ * gateway's connections and memory for every other route.
+ * <p>
+ * Limits come from the Resilience4j bulkhead named after the route, or {@code name}, under
+ * {@code resilience4j.bulkhead.instances}. Requests over the limit get 503 at once; the
+ * bulkhead's {@code max-wait-duration} must stay zero, as waiting would block the event loop.
+ * A request holds its permit across retries until the exchange completes.
+ */
+@Component
+public class BulkheadGatewayFilterFactory extends AbstractGatewayFilterFactory<BulkheadGatewayFilterFactory.Config> {
+
+    private final BulkheadRegistry bulkheadRegistry;
+    private final MeterRegistry registry;
+
+    public BulkheadGatewayFilterFactory(BulkheadRegistry bulkheadRegistry, MeterRegistry registry) {
+        super(Config.class);
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.registry = registry;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return List.of("name");
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() == null ? "unknown" : config.getRouteId();
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(config.getName() != null ? config.getName() : routeId);
+        Counter rejected = Counter.builder("gateway.bulkhead.rejections")
+                .tag("route", routeId)
+                .description("Requests turned away because the route had too many in flight")
+                .register(registry);
+        return (exchange, chain) -> {
+            if (!bulkhead.tryAcquirePermission()) {
+                rejected.increment();
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                return exchange.getResponse().setComplete();
+            }
+            return chain.filter(exchange).doFinally(signal -> bulkhead.onComplete());
+        };
+    }
+
+    @Data
+    public static class Config implements HasRouteId {
+        private String name;
+        private String routeId;
+    }
+}
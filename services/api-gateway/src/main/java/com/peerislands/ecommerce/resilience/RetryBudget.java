@@ -0,0 +1,79 @@
+package com.peerislands.ecommerce.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps the retries of a route, or the hedged requests of the gateway, to a fraction of the
+ * requests, so that extra attempts cannot multiply the load on a service that is struggling.
+ * <p>
+ * Every request deposits {@code retryRatio} of a retry and every retry withdraws a whole one.
+ * A small reserve refilled at {@code minRetriesPerSecond} lets low-traffic routes retry too.
+ * At most {@link #MAX_BANKED_RETRIES} are banked, so a long quiet spell cannot fund a retry
+ * storm later. Both balances are updated with compare-and-set, without locking.
+ */
+public class RetryBudget {
+
+    static final long MAX_BANKED_RETRIES = 100;
+
+    // Balances are kept in thousandths of a retry
+    private static final long UNIT = 1000;
+
+    private final long depositPerRequest;
+    private final long reserveInterval;
+    private final long reserveCapacity;
+    private final LongSupplier nanoClock;
+    private final AtomicLong balance = new AtomicLong();
+    private final AtomicLong reserveFullAt;
+
+    public RetryBudget(double retryRatio, int minRetriesPerSecond, LongSupplier nanoClock) {
+        if (retryRatio < 0 || minRetriesPerSecond < 0) {
+            throw new IllegalArgumentException("Retry ratio and minimum retries per second must not be negative");
+        }
+        this.depositPerRequest = Math.round(retryRatio * UNIT);
+        this.reserveInterval = minRetriesPerSecond == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / minRetriesPerSecond;
+        this.reserveCapacity = reserveInterval * minRetriesPerSecond;
+        this.nanoClock = nanoClock;
+        this.reserveFullAt = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    public void recordRequest() {
+        if (depositPerRequest > 0) {
+            balance.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(current + deposit, MAX_BANKED_RETRIES * UNIT));
+        }
+    }
+
+    public boolean tryRetry() {
+        return tryReserve() || tryWithdraw();
+    }
+
+    private boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < UNIT) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - UNIT)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean tryReserve() {
+        if (reserveInterval == 0) {
+            return false;
+        }
+        long now = nanoClock.getAsLong();
+        while (true) {
+            long fullAt = reserveFullAt.get();
+            long next = Math.max(fullAt, now) + reserveInterval;
+            if (next - now > reserveCapacity) {
+                return false;
+            }
+            if (reserveFullAt.compareAndSet(fullAt, next)) {
+                return true;
+            }
+        }
+    }
+}
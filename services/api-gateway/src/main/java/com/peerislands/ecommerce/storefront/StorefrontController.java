@@ -0,0 +1,24 @@
+package com.peerislands.ecommerce.storefront;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * One-call view of a user, their cart and their orders for the storefront home page.
+ */
+@RestController
+@RequestMapping("/api/storefront")
+@RequiredArgsConstructor
+public class StorefrontController {
+
+    private final StorefrontService storefrontService;
+
+    @GetMapping("/{userId}")
+    public Mono<StorefrontView> getStorefront(@PathVariable String userId) {
+        return storefrontService.getStorefront(userId);
+    }
+}
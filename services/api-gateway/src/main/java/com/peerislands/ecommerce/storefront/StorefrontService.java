@@ -0,0 +1,106 @@
+package com.peerislands.ecommerce.storefront;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Builds the storefront view of a user from user-service, cart-service and order-service,
+ * calling all three at once.
+ * <p>
+ * Every call has its own timeout. A cart or order call that fails or times out leaves that
+ * part out and names it in {@link StorefrontView#unavailable()}; the user call is required,
+ * so its failure fails the whole view.
+ */
+@Slf4j
+@Service
+public class StorefrontService {
+
+    static final String USER = "user";
+    static final String CART = "cart";
+    static final String ORDERS = "orders";
+
+    private final WebClient webClient;
+    private final String userServiceUrl;
+    private final String cartServiceUrl;
+    private final String orderServiceUrl;
+    private final Duration userTimeout;
+    private final Duration cartTimeout;
+    private final Duration ordersTimeout;
+
+    public StorefrontService(
+            WebClient webClient,
+            @Value("${user.service.url:http://localhost:9090}") String userServiceUrl,
+            @Value("${cart.service.url:http://localhost:9292}") String cartServiceUrl,
+            @Value("${order.service.url:http://localhost:9393}") String orderServiceUrl,
+            @Value("${gateway.storefront.user-timeout:1s}") Duration userTimeout,
+            @Value("${gateway.storefront.cart-timeout:500ms}") Duration cartTimeout,
+            @Value("${gateway.storefront.orders-timeout:800ms}") Duration ordersTimeout) {
+        this.webClient = webClient;
+        this.userServiceUrl = userServiceUrl;
+        this.cartServiceUrl = cartServiceUrl;
+        this.orderServiceUrl = orderServiceUrl;
+        this.userTimeout = userTimeout;
+        this.cartTimeout = cartTimeout;
+        this.ordersTimeout = ordersTimeout;
+    }
+
+    public Mono<StorefrontView> getStorefront(String userId) {
+        Mono<JsonNode> user = fetch(userServiceUrl + "/api/users/{id}", userId, userTimeout)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Empty user response")))
+                .onErrorMap(WebClientResponseException.NotFound.class,
+                        e -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found with id: " + userId))
+                .onErrorMap(e -> !(e instanceof ResponseStatusException),
+                        e -> new ResponseStatusException(HttpStatus.BAD_GATEWAY, "User service unavailable", e));
+        Mono<Leg> cart = optional(CART, fetch(cartServiceUrl + "/api/carts/{userId}", userId, cartTimeout));
+        Mono<Leg> orders = optional(ORDERS, fetch(orderServiceUrl + "/api/orders/user/{userId}", userId, ordersTimeout));
+        return Mono.zip(user, cart, orders).map(legs -> {
+            List<String> unavailable = new ArrayList<>();
+            Leg cartLeg = legs.getT2();
+            Leg ordersLeg = legs.getT3();
+            if (!cartLeg.available()) {
+                unavailable.add(CART);
+            }
+            if (!ordersLeg.available()) {
+                unavailable.add(ORDERS);
+            }
+            return new StorefrontView(userId, legs.getT1(), cartLeg.body().orElse(null),
+                    ordersLeg.body().orElse(null), List.copyOf(unavailable));
+        });
+    }
+
+    private Mono<JsonNode> fetch(String uriTemplate, String userId, Duration timeout) {
+        return webClient.get()
+                .uri(uriTemplate, userId)
+                .retrieve()
+                .bodyToMono(JsonNode.class)
+                .timeout(timeout);
+    }
+
+    private static Mono<Leg> optional(String name, Mono<JsonNode> call) {
+        return call
+                .map(body -> new Leg(Optional.of(body), true))
+                // A 404 means there is nothing to show, e.g. no cart yet, not a failure
+                .onErrorResume(WebClientResponseException.NotFound.class,
+                        e -> Mono.just(new Leg(Optional.empty(), true)))
+                .onErrorResume(e -> {
+                    log.warn("Storefront {} unavailable: {}", name, e.toString());
+                    return Mono.just(new Leg(Optional.empty(), false));
+                })
+                .defaultIfEmpty(new Leg(Optional.empty(), true));
+    }
+
+    private record Leg(Optional<JsonNode> body, boolean available) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.peerislands.ecommerce.storefront;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * Everything the storefront home page shows for one user, as returned by the owning services.
+ *
+ * @param cart        the user's cart; {@code null} if they have none or it was unavailable
+ * @param orders      the user's orders; {@code null} if they were unavailable
+ * @param unavailable parts that could not be fetched in time and are left out
+ */
+public record StorefrontView(String userId, JsonNode user, JsonNode cart, JsonNode orders, List<String> unavailable) {
+}
@@ -0,0 +1,108 @@
+package com.peerislands.ecommerce.support;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Forwards an upstream response unchanged while keeping a copy of its body, for filters that
+ * reuse complete responses.
+ * <p>
+ * Exactly one of {@link #onRecorded} and {@link #onNotRecorded} is called per response: the
+ * former once the whole body has been written, the latter if recording was declined, the body
+ * outgrew the limit, or the write failed or was cancelled.
+ */
+public abstract class RecordingResponseDecorator extends ServerHttpResponseDecorator {
+
+    private final long maxBodyBytes;
+    private final AtomicBoolean done = new AtomicBoolean();
+
+    protected RecordingResponseDecorator(ServerHttpResponse delegate, long maxBodyBytes) {
+        super(delegate);
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * Whether to record this response, decided once status and headers are known.
+     */
+    protected boolean shouldRecord() {
+        return true;
+    }
+
+    protected abstract void onRecorded(byte[] body);
+
+    protected void onNotRecorded() {
+    }
+
+    /**
+     * Copy of the response headers fit to be replayed with the recorded body.
+     */
+    protected HttpHeaders replayableHeaders(byte[] body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(getDelegate().getHeaders());
+        UpstreamAttempts.HOP_BY_HOP_HEADERS.forEach(headers::remove);
+        headers.setContentLength(body.length);
+        return headers;
+    }
+
+    @Override
+    public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        if (!shouldRecord()) {
+            finish(null);
+            return super.writeWith(body);
+        }
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        boolean[] tooLarge = {false};
+        Flux<DataBuffer> recorded = Flux.<DataBuffer>from(body)
+                .doOnNext(buffer -> {
+                    if (tooLarge[0]) {
+                        return;
+                    }
+                    int length = buffer.readableByteCount();
+                    if (copy.size() + length > maxBodyBytes) {
+                        tooLarge[0] = true;
+                        return;
+                    }
+                    byte[] bytes = new byte[length];
+                    buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(bytes), 0, length);
+                    copy.writeBytes(bytes);
+                })
+                .doOnComplete(() -> finish(tooLarge[0] ? null : copy.toByteArray()))
+                .doOnError(e -> finish(null))
+                .doOnCancel(() -> finish(null));
+        return super.writeWith(recorded);
+    }
+
+    @Override
+    public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        // Streamed responses are never recorded
+        finish(null);
+        return super.writeAndFlushWith(body);
+    }
+
+    /**
+     * Reports a response that ended without a body being written, e.g. because upstream failed.
+     */
+    public void abandon() {
+        finish(null);
+    }
+
+    private void finish(byte[] body) {
+        if (!done.compareAndSet(false, true)) {
+            return;
+        }
+        if (body == null) {
+            onNotRecorded();
+        } else {
+            onRecorded(body);
+        }
+    }
+}
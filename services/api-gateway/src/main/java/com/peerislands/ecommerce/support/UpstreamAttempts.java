@@ -0,0 +1,37 @@
+package com.peerislands.ecommerce.support;
+
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.netty.Connection;
+
+import java.util.List;
+
+/**
+ * Helpers for filters that send a request upstream more than once or answer it from another
+ * upstream response.
+ */
+public final class UpstreamAttempts {
+
+    /**
+     * Connection-level headers that must not be copied between requests or responses.
+     */
+    public static final List<String> HOP_BY_HOP_HEADERS = List.of(
+            HttpHeaders.CONNECTION, HttpHeaders.TRANSFER_ENCODING, "Keep-Alive", HttpHeaders.UPGRADE);
+
+    private UpstreamAttempts() {
+    }
+
+    /**
+     * Discards the upstream response the routing filter attached to the exchange, so that the
+     * request can be routed again or answered otherwise.
+     */
+    public static void discard(ServerWebExchange exchange) {
+        Connection connection = exchange.getAttribute(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        if (connection != null) {
+            connection.dispose();
+            exchange.getAttributes().remove(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+        }
+        ServerWebExchangeUtils.reset(exchange);
+    }
+}
@@ -3,7 +3,7 @@ package com.peerislands.ecommerce;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "gateway.response-cache.invalidation-token=test")
 class ApiGatewayApplicationTests {
 
 	@Test
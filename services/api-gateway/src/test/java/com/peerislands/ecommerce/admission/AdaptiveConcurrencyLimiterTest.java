@@ -0,0 +1,76 @@
+package com.peerislands.ecommerce.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void lowerPriorities_AreShedFirst() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+
+        int low = admit(limiter, Priority.LOW, 10);
+        int normal = admit(limiter, Priority.NORMAL, 10);
+        int high = admit(limiter, Priority.HIGH, 10);
+
+        assertEquals(7, low);
+        assertEquals(2, normal);
+        assertEquals(1, high);
+        assertFalse(limiter.tryAcquire(Priority.HIGH));
+
+        limiter.release();
+        assertFalse(limiter.tryAcquire(Priority.LOW));
+        assertTrue(limiter.tryAcquire(Priority.HIGH));
+    }
+
+    @Test
+    void limit_ShrinksWhenResponsesSlowDownAndRecoversAfterwards() {
+        AdaptiveConcurrencyLimiter limiter = limiter(100);
+
+        for (int i = 0; i < 10; i++) {
+            window(limiter, 10);
+        }
+        int healthy = limiter.limit();
+        for (int i = 0; i < 10; i++) {
+            window(limiter, 50);
+        }
+        int overloaded = limiter.limit();
+        for (int i = 0; i < 30; i++) {
+            window(limiter, 10);
+        }
+
+        assertTrue(healthy > 100, "limit grows while response times hold: " + healthy);
+        assertTrue(overloaded < 100, "limit shrinks as requests queue: " + overloaded);
+        assertTrue(limiter.limit() > overloaded, "limit recovers: " + limiter.limit());
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, 10, 1000, Duration.ofSeconds(1), 1.5, clock::get);
+    }
+
+    private static int admit(AdaptiveConcurrencyLimiter limiter, Priority priority, int requests) {
+        int admitted = 0;
+        for (int i = 0; i < requests; i++) {
+            if (limiter.tryAcquire(priority)) {
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+
+    // Fills the limit, then completes every request after rttMillis and closes the window
+    private void window(AdaptiveConcurrencyLimiter limiter, long rttMillis) {
+        int admitted = admit(limiter, Priority.HIGH, limiter.limit());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < admitted; i++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.peerislands.ecommerce.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlGatewayFilterFactoryTest {
+
+    private SimpleMeterRegistry registry;
+    private AdaptiveConcurrencyLimiter limiter;
+    private AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        limiter = new AdaptiveConcurrencyLimiter(10, 10, 100, Duration.ofSeconds(1), 1.5, System::nanoTime);
+        upstreamCalls = new AtomicInteger();
+    }
+
+    @Test
+    void browsing_IsShedWhileOrdersAreStillAdmitted() {
+        GatewayFilter filter = filter();
+        Sinks.Empty<Void> upstream = Sinks.empty();
+        for (int i = 0; i < 7; i++) {
+            filter.filter(MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders/" + i)), hanging(upstream))
+                    .subscribe();
+        }
+
+        MockServerWebExchange browse = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1"));
+        filter.filter(browse, hanging(upstream)).block();
+        MockServerWebExchange order = MockServerWebExchange.from(MockServerHttpRequest.post("/api/orders"));
+        filter.filter(order, hanging(upstream)).subscribe();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, browse.getResponse().getStatusCode());
+        assertEquals("1", browse.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(8, upstreamCalls.get());
+        assertEquals(1, registry.get("gateway.admission.requests").tag("priority", "low").tag("result", "shed")
+                .counter().count());
+
+        upstream.tryEmitEmpty();
+        MockServerWebExchange later = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1"));
+        filter.filter(later, hanging(upstream)).block();
+        assertNotEquals(HttpStatus.SERVICE_UNAVAILABLE, later.getResponse().getStatusCode());
+    }
+
+    @Test
+    void requestRules_OverrideRoutePriority() {
+        List<AdmissionControlGatewayFilterFactory.Rule> rules = List.of(
+                AdmissionControlGatewayFilterFactory.Rule.parse("POST /api/orders", Priority.HIGH),
+                AdmissionControlGatewayFilterFactory.Rule.parse("/api/carts/*/checkout", Priority.HIGH),
+                AdmissionControlGatewayFilterFactory.Rule.parse("GET /api/products/**", Priority.LOW));
+
+        assertEquals(Priority.HIGH, priorityOf(MockServerHttpRequest.post("/api/orders"), rules));
+        assertEquals(Priority.NORMAL, priorityOf(MockServerHttpRequest.get("/api/orders"), rules));
+        assertEquals(Priority.HIGH, priorityOf(MockServerHttpRequest.get("/api/carts/u1/checkout"), rules));
+        assertEquals(Priority.LOW, priorityOf(MockServerHttpRequest.get("/api/products"), rules));
+        assertEquals(Priority.NORMAL, priorityOf(MockServerHttpRequest.put("/api/products/1"), rules));
+    }
+
+    private GatewayFilter filter() {
+        AdmissionControlGatewayFilterFactory.Config config = new AdmissionControlGatewayFilterFactory.Config();
+        config.setHighPriorityRequests(List.of("POST /api/orders"));
+        config.setLowPriorityRequests(List.of("GET /api/products/**"));
+        config.setRouteId("gateway");
+        return new AdmissionControlGatewayFilterFactory(limiter, registry).apply(config);
+    }
+
+    private static Priority priorityOf(MockServerHttpRequest.BaseBuilder<?> request,
+                                       List<AdmissionControlGatewayFilterFactory.Rule> rules) {
+        return AdmissionControlGatewayFilterFactory.priorityOf(request.build(), rules, Priority.NORMAL);
+    }
+
+    // Requests stay in flight until the sink completes
+    private GatewayFilterChain hanging(Sinks.Empty<Void> upstream) {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            return upstream.asMono().then(Mono.fromRunnable(() -> exchange.getResponse().setStatusCode(HttpStatus.OK)));
+        };
+    }
+}
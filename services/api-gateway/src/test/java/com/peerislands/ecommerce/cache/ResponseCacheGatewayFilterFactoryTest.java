@@ -0,0 +1,144 @@
+package com.peerislands.ecommerce.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheGatewayFilterFactoryTest {
+
+    private static final Route ROUTE = Route.async()
+            .id("product-service")
+            .uri("http://localhost:9191")
+            .predicate(exchange -> true)
+            .build();
+
+    private SimpleMeterRegistry registry;
+    private ResponseCache responseCache;
+    private GatewayFilter filter;
+    private AtomicInteger upstreamCalls;
+    private HttpHeaders upstreamHeaders;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        responseCache = new ResponseCache(DataSize.ofMegabytes(1), DataSize.ofKilobytes(1), registry);
+        ResponseCacheGatewayFilterFactory factory = new ResponseCacheGatewayFilterFactory(responseCache);
+        ResponseCacheGatewayFilterFactory.Config config = new ResponseCacheGatewayFilterFactory.Config();
+        config.setExcludedPaths(List.of("/api/products/*/stock"));
+        filter = factory.apply(config);
+        upstreamCalls = new AtomicInteger();
+        upstreamHeaders = new HttpHeaders();
+    }
+
+    @Test
+    void get_SecondRequest_IsServedFromCache() {
+        MockServerWebExchange first = get("/api/products/5");
+        MockServerWebExchange second = get("/api/products/5");
+
+        assertEquals("MISS", first.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER));
+        assertEquals("HIT", second.getResponse().getHeaders().getFirst(ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER));
+        assertEquals("body 1", second.getResponse().getBodyAsString().block());
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(0.5, registry.get("gateway.cache.hit.ratio").tag("route", "product-service").gauge().value());
+        assertTrue(registry.get("gateway.cache.size").tag("route", "product-service").gauge().value() > 0);
+    }
+
+    @Test
+    void get_UncacheableResponsesAndExcludedPaths_AlwaysGoUpstream() {
+        get("/api/products/5/stock");
+        get("/api/products/5/stock");
+        upstreamHeaders.setCacheControl("no-store");
+        get("/api/products/6");
+        get("/api/products/6");
+
+        assertEquals(4, upstreamCalls.get());
+    }
+
+    @Test
+    void get_VaryingResponse_IsCachedPerHeaderValue() {
+        upstreamHeaders.set(HttpHeaders.VARY, "Accept");
+
+        get("/api/products", "application/json");
+        get("/api/products", "text/csv");
+        get("/api/products", "application/json");
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void invalidate_DropsOnlyMatchingPaths() {
+        get("/api/products/5");
+        get("/api/products/50");
+
+        assertEquals(1, responseCache.invalidate("product-service", List.of("/api/products/5"), List.of()));
+        get("/api/products/5");
+        get("/api/products/50");
+
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    void invalidate_ExactPaths_DropEveryQueryButNothingBelow() {
+        get("/api/products");
+        get("/api/products?ids=5,6");
+        get("/api/products/5");
+
+        assertEquals(2, responseCache.invalidate("product-service", List.of(), List.of("/api/products")));
+        get("/api/products?ids=5,6");
+        get("/api/products/5");
+
+        assertEquals(4, upstreamCalls.get());
+    }
+
+    @Test
+    void ttlOf_HonoursUpstreamCacheControl() {
+        Duration routeTtl = Duration.ofSeconds(60);
+        HttpHeaders headers = new HttpHeaders();
+        assertEquals(routeTtl, ResponseCacheGatewayFilterFactory.ttlOf(headers, routeTtl));
+        headers.set(HttpHeaders.CACHE_CONTROL, "public, max-age=10");
+        assertEquals(Duration.ofSeconds(10), ResponseCacheGatewayFilterFactory.ttlOf(headers, routeTtl));
+        headers.set(HttpHeaders.CACHE_CONTROL, "max-age=10, s-maxage=30");
+        assertEquals(Duration.ofSeconds(30), ResponseCacheGatewayFilterFactory.ttlOf(headers, routeTtl));
+        headers.set(HttpHeaders.CACHE_CONTROL, "private, max-age=10");
+        assertNull(ResponseCacheGatewayFilterFactory.ttlOf(headers, routeTtl));
+    }
+
+    private MockServerWebExchange get(String path) {
+        return get(path, "application/json");
+    }
+
+    private MockServerWebExchange get(String path, String accept) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(
+                MockServerHttpRequest.get(path).header(HttpHeaders.ACCEPT, accept));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, ROUTE);
+        filter.filter(exchange, upstream()).block();
+        return exchange;
+    }
+
+    private GatewayFilterChain upstream() {
+        return exchange -> {
+            int call = upstreamCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            exchange.getResponse().getHeaders().putAll(upstreamHeaders);
+            byte[] body = ("body " + call).getBytes(StandardCharsets.UTF_8);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+        };
+    }
+}
@@ -0,0 +1,125 @@
+package com.peerislands.ecommerce.coalesce;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescingGatewayFilterFactoryTest {
+
+    private static final Route ROUTE = Route.async()
+            .id("product-service")
+            .uri("http://localhost:9191")
+            .predicate(exchange -> true)
+            .build();
+
+    private SimpleMeterRegistry registry;
+    private RequestCoalescingGatewayFilterFactory factory;
+    private AtomicInteger upstreamCalls;
+    private Sinks.Empty<Void> release;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        factory = new RequestCoalescingGatewayFilterFactory(DataSize.ofKilobytes(1), registry);
+        upstreamCalls = new AtomicInteger();
+        release = Sinks.empty();
+    }
+
+    @Test
+    void concurrentIdenticalRequests_ShareOneUpstreamCall() {
+        GatewayFilter filter = filter(Duration.ofSeconds(5));
+        MockServerWebExchange leader = exchange("/api/products/5");
+        MockServerWebExchange follower = exchange("/api/products/5");
+        MockServerWebExchange other = exchange("/api/products/6");
+
+        Mono<Void> leaderDone = filter.filter(leader, slowUpstream()).cache();
+        leaderDone.subscribe();
+        Mono<Void> followerDone = filter.filter(follower, slowUpstream()).cache();
+        followerDone.subscribe();
+        filter.filter(other, slowUpstream()).subscribe();
+        release.tryEmitEmpty();
+        leaderDone.block(Duration.ofSeconds(1));
+        followerDone.block(Duration.ofSeconds(1));
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals("body 1", follower.getResponse().getBodyAsString().block());
+        assertEquals(HttpStatus.OK, follower.getResponse().getStatusCode());
+        assertEquals(1, registry.get("gateway.coalescing.requests").tag("role", "follower").counter().count());
+
+        // Once the shared call has completed, the next request is forwarded again
+        filter.filter(exchange("/api/products/5"), slowUpstream()).block(Duration.ofSeconds(1));
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    void follower_WhenSharedCallFails_GoesUpstreamItself() {
+        GatewayFilter filter = filter(Duration.ofSeconds(5));
+        MockServerWebExchange follower = exchange("/api/products/5");
+
+        Mono<Void> leaderDone = filter.filter(exchange("/api/products/5"),
+                exchange -> release.asMono().then(Mono.error(new IllegalStateException("connect refused")))).cache();
+        leaderDone.subscribe(null, e -> { });
+        Mono<Void> followerDone = filter.filter(follower, upstream()).cache();
+        followerDone.subscribe();
+        release.tryEmitEmpty();
+
+        followerDone.block(Duration.ofSeconds(1));
+        assertEquals("body 1", follower.getResponse().getBodyAsString().block());
+        assertEquals(1, registry.get("gateway.coalescing.requests").tag("role", "fallback").counter().count());
+    }
+
+    @Test
+    void follower_AfterMaxWait_GoesUpstreamItself() {
+        GatewayFilter filter = filter(Duration.ofMillis(50));
+        MockServerWebExchange follower = exchange("/api/products/5");
+
+        filter.filter(exchange("/api/products/5"), slowUpstream()).subscribe();
+        filter.filter(follower, upstream()).block(Duration.ofSeconds(1));
+
+        // The shared call is still waiting to be released
+        assertEquals(1, upstreamCalls.get());
+        assertEquals("body 1", follower.getResponse().getBodyAsString().block());
+    }
+
+    private GatewayFilter filter(Duration maxWait) {
+        RequestCoalescingGatewayFilterFactory.Config config = new RequestCoalescingGatewayFilterFactory.Config();
+        config.setMaxWait(maxWait);
+        return factory.apply(config);
+    }
+
+    private static MockServerWebExchange exchange(String path) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, ROUTE);
+        return exchange;
+    }
+
+    private GatewayFilterChain slowUpstream() {
+        GatewayFilterChain upstream = upstream();
+        return exchange -> release.asMono().then(upstream.filter(exchange));
+    }
+
+    private GatewayFilterChain upstream() {
+        return exchange -> Mono.defer(() -> {
+            int call = upstreamCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            byte[] body = ("body " + call).getBytes(StandardCharsets.UTF_8);
+            return exchange.getResponse().writeWith(Mono.just(exchange.getResponse().bufferFactory().wrap(body)));
+        });
+    }
+}
@@ -0,0 +1,59 @@
+package com.peerislands.ecommerce.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UpstreamHttpClientConfigTest {
+
+    private DisposableServer server;
+
+    @BeforeEach
+    void setUp() {
+        server = HttpServer.create()
+                .port(0)
+                .protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                .handle((request, response) -> response.sendString(Mono.just(request.protocol())))
+                .bindNow();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.disposeNow();
+    }
+
+    @Test
+    void h2c_SendsRequestsOverCleartextHttp2() {
+        assertEquals("HTTP/2.0", protocolSeenByServer(HttpProtocol.H2C));
+    }
+
+    @Test
+    void h2cWithHttp11_UpgradesTheConnection() {
+        assertEquals("HTTP/2.0", protocolSeenByServer(HttpProtocol.H2C, HttpProtocol.HTTP11));
+    }
+
+    @Test
+    void http11_StaysOnHttp11() {
+        assertEquals("HTTP/1.1", protocolSeenByServer(HttpProtocol.HTTP11));
+    }
+
+    private String protocolSeenByServer(HttpProtocol... protocols) {
+        HttpClient client = new UpstreamHttpClientConfig().upstreamProtocolCustomizer(protocols)
+                .customize(HttpClient.create());
+        return client.get()
+                .uri("http://localhost:" + server.port() + "/")
+                .responseContent()
+                .aggregate()
+                .asString()
+                .block(Duration.ofSeconds(5));
+    }
+}
@@ -0,0 +1,163 @@
+package com.peerislands.ecommerce.hedge;
+
+import com.peerislands.ecommerce.resilience.RetryBudget;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HedgeGatewayFilterFactoryTest {
+
+    private static final ServiceInstance SLOW = new DefaultServiceInstance("slow", "PRODUCT-SERVICE", "slow", 8080, false);
+    private static final ServiceInstance FAST = new DefaultServiceInstance("fast", "PRODUCT-SERVICE", "fast", 8080, false);
+
+    private SimpleMeterRegistry registry;
+    private LoadBalancerClientFactory clientFactory;
+    private List<URI> hedgedUris;
+    private WebClient webClient;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        clientFactory = mock(LoadBalancerClientFactory.class);
+        ServiceInstanceListSupplier instances = mock(ServiceInstanceListSupplier.class);
+        when(instances.get()).thenReturn(Flux.just(List.of(SLOW, FAST)));
+        when(clientFactory.getInstance("PRODUCT-SERVICE", ServiceInstanceListSupplier.class)).thenReturn(instances);
+        hedgedUris = new ArrayList<>();
+        webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    hedgedUris.add(request.url());
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header("Content-Type", "application/json")
+                            .body("{\"id\":1}")
+                            .build());
+                })
+                .build();
+    }
+
+    @Test
+    void slowRequest_IsAnsweredByHedgeToAnotherInstance() {
+        GatewayFilter filter = filter(new RetryBudget(0.0, 10, System::nanoTime));
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/products/1?fields=name"));
+        AtomicBoolean firstCancelled = new AtomicBoolean();
+
+        filter.filter(exchange, hangingUpstream(firstCancelled)).block(Duration.ofSeconds(5));
+
+        assertEquals(List.of(URI.create("http://fast:8080/api/products/1?fields=name")), hedgedUris);
+        assertTrue(firstCancelled.get());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals("{\"id\":1}", exchange.getResponse().getBodyAsString().block());
+        assertEquals(1, registry.get("gateway.hedges").tag("result", "won").counter().count());
+    }
+
+    @Test
+    void fastRequest_IsNotHedged() {
+        GatewayFilter filter = filter(new RetryBudget(0.0, 10, System::nanoTime));
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/products/1"));
+
+        filter.filter(exchange, routed -> {
+            routed.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        }).block(Duration.ofSeconds(5));
+
+        assertTrue(hedgedUris.isEmpty());
+        assertEquals(0, registry.get("gateway.hedges").tag("result", "sent").counter().count());
+    }
+
+    @Test
+    void post_IsNeverHedged() {
+        GatewayFilter filter = filter(new RetryBudget(1.0, 10, System::nanoTime));
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.post("/api/products"));
+        AtomicBoolean firstCancelled = new AtomicBoolean();
+
+        assertThrows(IllegalStateException.class, () ->
+                filter.filter(exchange, hangingUpstream(firstCancelled)).block(Duration.ofMillis(200)));
+
+        assertTrue(hedgedUris.isEmpty());
+    }
+
+    @Test
+    void excludedPath_IsNeverHedged() {
+        HedgeGatewayFilterFactory.Config config = config();
+        config.setExcludedPaths(List.of("/api/products/*/reserve"));
+        GatewayFilter filter = new HedgeGatewayFilterFactory(webClient, clientFactory,
+                new RetryBudget(1.0, 10, System::nanoTime), registry).apply(config);
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/products/1/reserve"));
+        AtomicBoolean firstCancelled = new AtomicBoolean();
+
+        assertThrows(IllegalStateException.class, () ->
+                filter.filter(exchange, hangingUpstream(firstCancelled)).block(Duration.ofMillis(200)));
+
+        assertTrue(hedgedUris.isEmpty());
+    }
+
+    @Test
+    void exhaustedBudget_LeavesRequestToFirstInstance() {
+        GatewayFilter filter = filter(new RetryBudget(0.0, 0, System::nanoTime));
+        MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/api/products/1"));
+        AtomicBoolean firstCancelled = new AtomicBoolean();
+
+        assertThrows(IllegalStateException.class, () ->
+                filter.filter(exchange, hangingUpstream(firstCancelled)).block(Duration.ofMillis(200)));
+
+        assertTrue(hedgedUris.isEmpty());
+        assertEquals(1, registry.get("gateway.hedges").tag("result", "budget-exhausted").counter().count());
+    }
+
+    private GatewayFilter filter(RetryBudget budget) {
+        return new HedgeGatewayFilterFactory(webClient, clientFactory, budget, registry).apply(config());
+    }
+
+    private static HedgeGatewayFilterFactory.Config config() {
+        HedgeGatewayFilterFactory.Config config = new HedgeGatewayFilterFactory.Config();
+        config.setDelay(Duration.ofMillis(20));
+        config.setRouteId("product-service");
+        return config;
+    }
+
+    private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, Route.async()
+                .id("product-service")
+                .uri(URI.create("lb://PRODUCT-SERVICE"))
+                .predicate(e -> true)
+                .build());
+        return exchange;
+    }
+
+    // Routes to the slow instance, which never answers
+    private static GatewayFilterChain hangingUpstream(AtomicBoolean cancelled) {
+        return exchange -> {
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR,
+                    URI.create("http://slow:8080" + exchange.getRequest().getURI().getRawPath()
+                            + (exchange.getRequest().getURI().getRawQuery() == null ? "" : "?" + exchange.getRequest().getURI().getRawQuery())));
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(SLOW));
+            return Mono.<Void>never().doOnCancel(() -> cancelled.set(true));
+        };
+    }
+}
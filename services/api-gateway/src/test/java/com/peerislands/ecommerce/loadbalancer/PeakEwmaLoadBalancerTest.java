@@ -0,0 +1,158 @@
+package com.peerislands.ecommerce.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Simulates a service with five instances, one of which answers twenty times slower than the
+ * others, and compares the response times seen through round robin and through the
+ * peak-EWMA balancer. Time is simulated, so the test runs in milliseconds.
+ */
+class PeakEwmaLoadBalancerTest {
+
+    private static final int REQUESTS = 50_000;
+    private static final long ARRIVAL_INTERVAL = TimeUnit.MICROSECONDS.toNanos(500);
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final List<ServiceInstance> instances = List.of(
+            instance("product-1"), instance("product-2"), instance("product-3"),
+            instance("product-4"), instance("product-slow"));
+
+    @Test
+    void slowInstance_IsAvoidedAndTailLatencyDrops() {
+        int[] next = {0};
+        Result roundRobin = simulate(new AtomicLong(), (clock) -> new Balancer() {
+            @Override
+            public ServiceInstance choose() {
+                return instances.get(next[0]++ % instances.size());
+            }
+        });
+        Result peakEwma = simulate(new AtomicLong(), (clock) -> {
+            PeakEwmaLoadBalancer balancer = balancer(clock);
+            return new Balancer() {
+                @Override
+                public ServiceInstance choose() {
+                    return balancer.choose(instances);
+                }
+
+                @Override
+                public void onStart(ServiceInstance instance) {
+                    balancer.onStart(instance);
+                }
+
+                @Override
+                public void onComplete(ServiceInstance instance, long responseNanos) {
+                    balancer.onComplete(instance, responseNanos, false);
+                }
+            };
+        });
+
+        assertEquals(0.2, roundRobin.slowShare(), 0.01);
+        assertTrue(peakEwma.slowShare() < 0.01, "slow share " + peakEwma.slowShare());
+        assertTrue(roundRobin.p99() >= SLOW);
+        assertTrue(peakEwma.p99() < 2 * FAST, "p99 " + peakEwma.p99());
+    }
+
+    @Test
+    void recoveredInstance_RegainsTrafficAsItsScoreDecays() {
+        AtomicLong clock = new AtomicLong();
+        PeakEwmaLoadBalancer balancer = balancer(clock);
+        ServiceInstance slow = instances.get(4);
+        for (ServiceInstance instance : instances) {
+            balancer.onStart(instance);
+            balancer.onComplete(instance, instance == slow ? SLOW : FAST, false);
+        }
+        assertEquals(0, countChoices(balancer, slow));
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        for (ServiceInstance instance : instances.subList(0, 4)) {
+            balancer.onStart(instance);
+            balancer.onComplete(instance, FAST, false);
+        }
+
+        assertTrue(countChoices(balancer, slow) > 0);
+    }
+
+    private int countChoices(PeakEwmaLoadBalancer balancer, ServiceInstance target) {
+        int count = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (balancer.choose(instances) == target) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PeakEwmaLoadBalancer balancer(AtomicLong clock) {
+        return new PeakEwmaLoadBalancer(mock(ObjectProvider.class), Duration.ofSeconds(10), Duration.ofSeconds(1), clock::get);
+    }
+
+    /**
+     * Sends requests at a fixed rate; each takes its instance's service time with +/-20% noise.
+     */
+    private Result simulate(AtomicLong clock, Function<AtomicLong, Balancer> balancerFactory) {
+        Balancer balancer = balancerFactory.apply(clock);
+        Random random = new Random(42);
+        PriorityQueue<Completion> inFlight = new PriorityQueue<>();
+        long[] latencies = new long[REQUESTS];
+        int slowCount = 0;
+        for (int i = 0; i < REQUESTS; i++) {
+            long now = i * ARRIVAL_INTERVAL;
+            while (!inFlight.isEmpty() && inFlight.peek().at() <= now) {
+                Completion done = inFlight.poll();
+                clock.set(done.at());
+                balancer.onComplete(done.instance(), done.latency());
+            }
+            clock.set(now);
+            ServiceInstance instance = balancer.choose();
+            balancer.onStart(instance);
+            boolean slow = instance.getInstanceId().endsWith("slow");
+            slowCount += slow ? 1 : 0;
+            long latency = (long) ((slow ? SLOW : FAST) * (0.8 + 0.4 * random.nextDouble()));
+            latencies[i] = latency;
+            inFlight.add(new Completion(now + latency, instance, latency));
+        }
+        Arrays.sort(latencies);
+        return new Result(latencies[(int) (REQUESTS * 0.99)], (double) slowCount / REQUESTS);
+    }
+
+    private static ServiceInstance instance(String id) {
+        return new DefaultServiceInstance(id, "PRODUCT-SERVICE", id, 9191, false);
+    }
+
+    private interface Balancer {
+        ServiceInstance choose();
+
+        default void onStart(ServiceInstance instance) {
+        }
+
+        default void onComplete(ServiceInstance instance, long responseNanos) {
+        }
+    }
+
+    private record Completion(long at, ServiceInstance instance, long latency) implements Comparable<Completion> {
+        @Override
+        public int compareTo(Completion other) {
+            return Long.compare(at, other.at);
+        }
+    }
+
+    private record Result(long p99, double slowShare) {
+    }
+}
@@ -0,0 +1,81 @@
+package com.peerislands.ecommerce.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteLatencyMetricsFilterTest {
+
+    private static final Route ROUTE = Route.async()
+            .id("product-service")
+            .uri("lb://PRODUCT-SERVICE")
+            .predicate(exchange -> true)
+            .build();
+
+    private SimpleMeterRegistry registry;
+    private RouteLatencyMetricsFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        filter = new RouteLatencyMetricsFilter(registry, new double[]{0.5, 0.99, 0.999}, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void filter_RecordsLatencyPerRouteInstanceAndStatusClass() {
+        ServiceInstance instance = new DefaultServiceInstance("product-1", "PRODUCT-SERVICE", "10.0.0.5", 9191, false);
+        for (int i = 0; i < 3; i++) {
+            MockServerWebExchange exchange = exchange();
+            filter.filter(exchange, e -> {
+                e.getAttributes().put(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR, new DefaultResponse(instance));
+                e.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+                return Mono.empty();
+            }).block();
+        }
+
+        Timer timer = registry.get(RouteLatencyMetricsFilter.METRIC)
+                .tag("route", "product-service")
+                .tag("instance", "product-1")
+                .tag("status", "4xx")
+                .timer();
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        assertEquals(3, timer.count());
+        assertEquals(3, snapshot.percentileValues().length);
+        assertEquals(0.999, snapshot.percentileValues()[2].percentile());
+    }
+
+    @Test
+    void filter_RecordsGatewayAnsweredErrorsAndCancellations() {
+        filter.filter(exchange(), e -> Mono.error(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT)))
+                .onErrorComplete()
+                .block();
+        filter.filter(exchange(), e -> Mono.never()).timeout(Duration.ofMillis(10)).onErrorComplete().block();
+
+        assertEquals(1, registry.get(RouteLatencyMetricsFilter.METRIC)
+                .tag("instance", RouteLatencyMetricsFilter.NO_INSTANCE).tag("status", "5xx").timer().count());
+        assertEquals(1, registry.get(RouteLatencyMetricsFilter.METRIC)
+                .tag("status", "cancelled").timer().count());
+    }
+
+    private static MockServerWebExchange exchange() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products/1"));
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, ROUTE);
+        return exchange;
+    }
+}
@@ -0,0 +1,88 @@
+package com.peerislands.ecommerce.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalRateLimiterGatewayFilterFactoryTest {
+
+    private SimpleMeterRegistry registry;
+    private LocalRateLimiterGatewayFilterFactory factory;
+    private AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        factory = new LocalRateLimiterGatewayFilterFactory(
+                new TokenBucketRateLimiter(1000, Duration.ofMinutes(10)), registry);
+        upstreamCalls = new AtomicInteger();
+    }
+
+    @Test
+    void requestsOverTheBurst_AreRejectedWithRetryAfter() {
+        GatewayFilter filter = filter(1, 2);
+
+        MockServerWebExchange first = exchange("10.0.0.1");
+        filter.filter(first, upstream()).block();
+        filter.filter(exchange("10.0.0.1"), upstream()).block();
+        MockServerWebExchange rejected = exchange("10.0.0.1");
+        filter.filter(rejected, upstream()).block();
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals("1", first.getResponse().getHeaders().getFirst(LocalRateLimiterGatewayFilterFactory.REMAINING_HEADER));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getResponse().getStatusCode());
+        assertEquals("1", rejected.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, registry.get("gateway.ratelimit.requests").tag("result", "rejected").counter().count());
+
+        // Another client still gets through
+        filter.filter(exchange("10.0.0.2"), upstream()).block();
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    void clientKey_IgnoresUnverifiedHeaders() {
+        InetSocketAddress address = new InetSocketAddress("10.1.2.3", 52000);
+
+        assertEquals("ip:10.1.2.3", LocalRateLimiterGatewayFilterFactory.clientKey(MockServerHttpRequest.get("/api/carts/1")
+                .header("X-API-Key", "k1")
+                .header("X-User-Id", "u1")
+                .remoteAddress(address).build()));
+        assertEquals("ip:unknown", LocalRateLimiterGatewayFilterFactory.clientKey(MockServerHttpRequest.get("/api/carts/1")
+                .header("X-API-Key", "k2").build()));
+    }
+
+    private GatewayFilter filter(int replenishRate, int burstCapacity) {
+        LocalRateLimiterGatewayFilterFactory.Config config = new LocalRateLimiterGatewayFilterFactory.Config();
+        config.setRouteId("cart-service");
+        config.setReplenishRate(replenishRate);
+        config.setBurstCapacity(burstCapacity);
+        return factory.apply(config);
+    }
+
+    private static MockServerWebExchange exchange(String clientIp) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/carts/1")
+                .header("X-User-Id", "u1")
+                .remoteAddress(new InetSocketAddress(clientIp, 52000)));
+    }
+
+    private GatewayFilterChain upstream() {
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            exchange.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        };
+    }
+}
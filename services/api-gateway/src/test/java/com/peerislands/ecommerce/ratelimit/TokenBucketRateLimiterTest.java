@@ -0,0 +1,83 @@
+package com.peerislands.ecommerce.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+    private final TokenBucketRateLimiter limiter =
+            new TokenBucketRateLimiter(1000, Duration.ofMinutes(10), clock::get);
+
+    @Test
+    void tryAcquire_AllowsBurstThenRefillsAtReplenishRate() {
+        TokenBucketRateLimiter.Limit limit = new TokenBucketRateLimiter.Limit(10, 3, 1);
+
+        assertEquals(2, limiter.tryAcquire("cart-service", "user:1", limit).remaining());
+        assertTrue(limiter.tryAcquire("cart-service", "user:1", limit).allowed());
+        assertTrue(limiter.tryAcquire("cart-service", "user:1", limit).allowed());
+        TokenBucketRateLimiter.Decision rejected = limiter.tryAcquire("cart-service", "user:1", limit);
+
+        assertFalse(rejected.allowed());
+        assertEquals(0, rejected.remaining());
+        assertEquals(Duration.ofMillis(100), rejected.retryAfter());
+        // Other clients and other routes have buckets of their own
+        assertTrue(limiter.tryAcquire("cart-service", "user:2", limit).allowed());
+        assertTrue(limiter.tryAcquire("order-service", "user:1", limit).allowed());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(limiter.tryAcquire("cart-service", "user:1", limit).allowed());
+        assertFalse(limiter.tryAcquire("cart-service", "user:1", limit).allowed());
+
+        // An idle bucket refills to its burst capacity and no further
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        assertEquals(2, limiter.tryAcquire("cart-service", "user:1", limit).remaining());
+    }
+
+    @Test
+    void tryAcquire_UnderContention_AllowsExactlyTheBurst() throws Exception {
+        TokenBucketRateLimiter.Limit limit = new TokenBucketRateLimiter.Limit(1, 500, 1);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int allowed = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    if (limiter.tryAcquire("cart-service", "ip:10.0.0.1", limit).allowed()) {
+                        allowed++;
+                    }
+                }
+                return allowed;
+            }));
+        }
+        start.countDown();
+        int allowed = 0;
+        for (Future<Integer> result : results) {
+            allowed += result.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(500, allowed);
+        assertEquals(1, limiter.bucketCount());
+    }
+
+    @Test
+    void limit_RejectsBurstSmallerThanRequestCost() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter.Limit(10, 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter.Limit(0, 10, 1));
+    }
+}
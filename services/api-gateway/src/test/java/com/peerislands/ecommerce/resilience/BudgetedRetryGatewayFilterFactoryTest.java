@@ -0,0 +1,128 @@
+package com.peerislands.ecommerce.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.support.ServiceUnavailableException;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.ConnectException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BudgetedRetryGatewayFilterFactoryTest {
+
+    private SimpleMeterRegistry registry;
+    private BudgetedRetryGatewayFilterFactory factory;
+    private AtomicInteger upstreamCalls;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        factory = new BudgetedRetryGatewayFilterFactory(registry);
+        upstreamCalls = new AtomicInteger();
+    }
+
+    @Test
+    void get_RetriesFailedAttemptsUntilOneSucceeds() {
+        GatewayFilter filter = filter(2, 0.0, 10);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders/1"));
+
+        filter.filter(exchange, upstream(HttpStatus.SERVICE_UNAVAILABLE, new ConnectException("refused"), HttpStatus.OK)).block();
+
+        assertEquals(3, upstreamCalls.get());
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals(2, registry.get("gateway.retries").tag("result", "retried").counter().count());
+    }
+
+    @Test
+    void post_IsNeverRetried() {
+        GatewayFilter filter = filter(2, 1.0, 10);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/orders"));
+
+        filter.filter(exchange, upstream(HttpStatus.BAD_GATEWAY, HttpStatus.OK)).block();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(HttpStatus.BAD_GATEWAY, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void excludedPath_IsNeverRetried() {
+        BudgetedRetryGatewayFilterFactory.Config config = new BudgetedRetryGatewayFilterFactory.Config();
+        config.setRouteId("cart-service");
+        config.setExcludedPaths(List.of("/api/carts/*/checkout"));
+        GatewayFilter filter = factory.apply(config);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/carts/u1/checkout"));
+
+        filter.filter(exchange, upstream(HttpStatus.GATEWAY_TIMEOUT, HttpStatus.OK)).block();
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, exchange.getResponse().getStatusCode());
+    }
+
+    @Test
+    void openCircuitBreaker_IsNotRetried() {
+        GatewayFilter filter = filter(2, 1.0, 10);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders/1"));
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        filter.filter(exchange, upstream(new ServiceUnavailableException(), HttpStatus.OK))
+                .doOnError(failure::set)
+                .onErrorComplete()
+                .block();
+
+        assertInstanceOf(ServiceUnavailableException.class, failure.get());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    @Test
+    void exhaustedBudget_StopsRetrying() {
+        // One retry in reserve and nothing deposited by traffic
+        GatewayFilter filter = filter(2, 0.0, 1);
+        MockServerWebExchange first = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders/1"));
+        MockServerWebExchange second = MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders/1"));
+
+        filter.filter(first, upstream(HttpStatus.GATEWAY_TIMEOUT, HttpStatus.OK)).block();
+        filter.filter(second, upstream(HttpStatus.GATEWAY_TIMEOUT, HttpStatus.OK)).block();
+
+        assertEquals(HttpStatus.OK, first.getResponse().getStatusCode());
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, second.getResponse().getStatusCode());
+        assertEquals(1, registry.get("gateway.retries").tag("result", "budget-exhausted").counter().count());
+    }
+
+    private GatewayFilter filter(int retries, double retryRatio, int minRetriesPerSecond) {
+        BudgetedRetryGatewayFilterFactory.Config config = new BudgetedRetryGatewayFilterFactory.Config();
+        config.setRouteId("order-service");
+        config.setRetries(retries);
+        config.setRetryRatio(retryRatio);
+        config.setMinRetriesPerSecond(minRetriesPerSecond);
+        return factory.apply(config);
+    }
+
+    /**
+     * Answers successive attempts with the given statuses, or fails them with the given errors.
+     */
+    private GatewayFilterChain upstream(Object... outcomes) {
+        Deque<Object> remaining = new ArrayDeque<>(List.of(outcomes));
+        return exchange -> {
+            upstreamCalls.incrementAndGet();
+            Object outcome = remaining.poll();
+            if (outcome instanceof Throwable error) {
+                return Mono.error(error);
+            }
+            exchange.getResponse().setStatusCode((HttpStatus) outcome);
+            return Mono.empty();
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package com.peerislands.ecommerce.resilience;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadGatewayFilterFactoryTest {
+
+    @Test
+    void requestsOverTheLimit_AreRejectedUntilPermitsAreReleased() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        BulkheadGatewayFilterFactory.Config config = new BulkheadGatewayFilterFactory.Config();
+        config.setRouteId("order-service");
+        GatewayFilter filter = new BulkheadGatewayFilterFactory(bulkheads, registry).apply(config);
+        Sinks.Empty<Void> release = Sinks.empty();
+
+        Mono<Void> inFlight = filter.filter(exchange(), exchange -> release.asMono()).cache();
+        inFlight.subscribe();
+        MockServerWebExchange rejected = exchange();
+        filter.filter(rejected, exchange -> Mono.empty()).block();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getResponse().getStatusCode());
+        assertEquals(1, registry.get("gateway.bulkhead.rejections").counter().count());
+
+        release.tryEmitEmpty();
+        inFlight.block(Duration.ofSeconds(1));
+        MockServerWebExchange admitted = exchange();
+        filter.filter(admitted, exchange -> Mono.empty()).block();
+        assertNull(admitted.getResponse().getStatusCode());
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/api/orders/1"));
+    }
+}
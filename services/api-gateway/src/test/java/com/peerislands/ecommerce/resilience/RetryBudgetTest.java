@@ -0,0 +1,56 @@
+package com.peerislands.ecommerce.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryBudgetTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void tryRetry_AllowsRetriesInProportionToRequests() {
+        RetryBudget budget = new RetryBudget(0.1, 0, clock::get);
+
+        for (int i = 0; i < 100; i++) {
+            budget.recordRequest();
+        }
+        int allowed = 0;
+        while (budget.tryRetry()) {
+            allowed++;
+        }
+
+        assertEquals(10, allowed);
+    }
+
+    @Test
+    void tryRetry_WithoutTraffic_FallsBackToReserveRate() {
+        RetryBudget budget = new RetryBudget(0.1, 2, clock::get);
+
+        assertTrue(budget.tryRetry());
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(budget.tryRetry());
+        assertFalse(budget.tryRetry());
+    }
+
+    @Test
+    void recordRequest_BanksAtMostTheCap() {
+        RetryBudget budget = new RetryBudget(1.0, 0, clock::get);
+
+        for (int i = 0; i < 1000; i++) {
+            budget.recordRequest();
+        }
+        int allowed = 0;
+        while (budget.tryRetry()) {
+            allowed++;
+        }
+
+        assertEquals(RetryBudget.MAX_BANKED_RETRIES, allowed);
+    }
+}
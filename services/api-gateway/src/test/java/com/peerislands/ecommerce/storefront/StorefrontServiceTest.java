@@ -0,0 +1,103 @@
+package com.peerislands.ecommerce.storefront;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorefrontServiceTest {
+
+    private final Set<String> requestedPaths = ConcurrentHashMap.newKeySet();
+
+    @Test
+    void getStorefront_CombinesAllThreeServices() {
+        StorefrontService service = service(Map.of(
+                "/api/users/u1", json("{\"id\":\"u1\",\"firstName\":\"Ada\"}"),
+                "/api/carts/u1", json("{\"userId\":\"u1\",\"cartItems\":[]}"),
+                "/api/orders/user/u1", json("[{\"id\":7}]")));
+
+        StorefrontView view = service.getStorefront("u1").block(Duration.ofSeconds(2));
+
+        assertEquals("Ada", view.user().get("firstName").asText());
+        assertEquals("u1", view.cart().get("userId").asText());
+        assertEquals(7, view.orders().get(0).get("id").asInt());
+        assertEquals(List.of(), view.unavailable());
+        assertEquals(3, requestedPaths.size());
+    }
+
+    @Test
+    void getStorefront_WhenCartIsSlowAndOrdersFail_ReturnsPartialView() {
+        StorefrontService service = service(Map.of(
+                "/api/users/u1", json("{\"id\":\"u1\"}"),
+                "/api/carts/u1", json("{\"userId\":\"u1\"}").delayElement(Duration.ofSeconds(5)),
+                "/api/orders/user/u1", status(HttpStatus.INTERNAL_SERVER_ERROR)));
+
+        StorefrontView view = service.getStorefront("u1").block(Duration.ofSeconds(2));
+
+        assertEquals("u1", view.user().get("id").asText());
+        assertNull(view.cart());
+        assertNull(view.orders());
+        assertEquals(List.of(StorefrontService.CART, StorefrontService.ORDERS), view.unavailable());
+    }
+
+    @Test
+    void getStorefront_WhenUserHasNoCart_IsNotPartial() {
+        StorefrontService service = service(Map.of(
+                "/api/users/u1", json("{\"id\":\"u1\"}"),
+                "/api/carts/u1", status(HttpStatus.NOT_FOUND),
+                "/api/orders/user/u1", json("[]")));
+
+        StorefrontView view = service.getStorefront("u1").block(Duration.ofSeconds(2));
+
+        assertNull(view.cart());
+        assertEquals(List.of(), view.unavailable());
+    }
+
+    @Test
+    void getStorefront_WhenUserNotFound_FailsWithNotFound() {
+        StorefrontService service = service(Map.of(
+                "/api/users/u1", status(HttpStatus.NOT_FOUND),
+                "/api/carts/u1", json("{}"),
+                "/api/orders/user/u1", json("[]")));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.getStorefront("u1").block(Duration.ofSeconds(2)));
+
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatusCode());
+    }
+
+    private StorefrontService service(Map<String, Mono<ClientResponse>> responses) {
+        ExchangeFunction exchange = request -> {
+            String path = request.url().getPath();
+            requestedPaths.add(path);
+            return responses.getOrDefault(path, status(HttpStatus.NOT_FOUND));
+        };
+        WebClient webClient = WebClient.builder().exchangeFunction(exchange).build();
+        return new StorefrontService(webClient, "http://users", "http://carts", "http://orders",
+                Duration.ofMillis(500), Duration.ofMillis(100), Duration.ofMillis(100));
+    }
+
+    private static Mono<ClientResponse> json(String body) {
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build());
+    }
+
+    private static Mono<ClientResponse> status(HttpStatus status) {
+        return Mono.just(ClientResponse.create(status).build());
+    }
+}
@@ -4,12 +4,16 @@ import com.peerislands.ecommerce.dto.*;
 import com.peerislands.ecommerce.entity.Cart;
 import com.peerislands.ecommerce.entity.CartItem;
 import com.peerislands.ecommerce.exception.CartNotFoundException;
+import com.peerislands.ecommerce.exception.ResourceNotFoundException;
 import com.peerislands.ecommerce.exception.ValidationException;
 import com.peerislands.ecommerce.repository.CartRepository;
 import com.peerislands.ecommerce.service.CartService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
@@ -19,6 +23,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class CartServiceImpl implements CartService {
@@ -41,9 +46,6 @@ public class CartServiceImpl implements CartService {
 
     @Override
     public CartDTO addItemToCart(String userId, CartItemDTO cartItemDTO) {
-        // Check product stock availability
-        checkProductStock(cartItemDTO.getProductId(), cartItemDTO.getQuantity());
-
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseGet(() -> Cart.builder()
                         .userId(userId)
@@ -55,11 +57,12 @@ public class CartServiceImpl implements CartService {
                 .filter(item -> item.getProductId().equals(cartItemDTO.getProductId()))
                 .findFirst();
 
+        // Hold the total quantity (existing + new) for this cart, extending any hold it already has
+        int heldQuantity = existingItem.map(CartItem::getQuantity).orElse(0);
+        int totalQuantity = heldQuantity + cartItemDTO.getQuantity();
+        holdProductStock(userId, cartItemDTO.getProductId(), totalQuantity);
+
         if (existingItem.isPresent()) {
-            // Check if total quantity (existing + new) is available
-            int totalQuantity = existingItem.get().getQuantity() + cartItemDTO.getQuantity();
-            checkProductStock(cartItemDTO.getProductId(), totalQuantity);
-            
             // Update quantity if item exists
             existingItem.get().updateQuantity(totalQuantity);
         } else {
@@ -68,24 +71,28 @@ public class CartServiceImpl implements CartService {
             cart.getCartItems().add(cartItem);
         }
         
-        Cart savedCart = cartRepository.save(cart);
+        Cart savedCart = saveOrRestoreHold(cart, userId, cartItemDTO.getProductId(), heldQuantity);
         return convertToDTO(savedCart);
     }
 
     @Override
     public CartDTO updateCartItem(String userId, String productId, Integer quantity) {
-        // Check product stock availability
-        checkProductStock(productId, quantity);
-
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new CartNotFoundException("Cart not found for user: " + userId));
 
-        cart.getCartItems().stream()
-                .filter(item -> item.getProductId().equals(productId))
-                .findFirst()
-                .ifPresent(item -> item.updateQuantity(quantity));
+        Optional<CartItem> item = cart.getCartItems().stream()
+                .filter(cartItem -> cartItem.getProductId().equals(productId))
+                .findFirst();
+        if (item.isEmpty()) {
+            return convertToDTO(cart);
+        }
+        int heldQuantity = item.get().getQuantity();
 
-        Cart savedCart = cartRepository.save(cart);
+        // Resize the stock hold to the new quantity
+        holdProductStock(userId, productId, quantity);
+        item.get().updateQuantity(quantity);
+
+        Cart savedCart = saveOrRestoreHold(cart, userId, productId, heldQuantity);
         return convertToDTO(savedCart);
     }
 
@@ -97,6 +104,7 @@ public class CartServiceImpl implements CartService {
         cart.getCartItems().removeIf(item -> item.getProductId().equals(productId));
         
         Cart savedCart = cartRepository.save(cart);
+        releaseProductStock(userId, productId);
         return convertToDTO(savedCart);
     }
 
@@ -105,8 +113,10 @@ public class CartServiceImpl implements CartService {
         Cart cart = cartRepository.findByUserId(userId)
                 .orElseThrow(() -> new CartNotFoundException("Cart not found for user: " + userId));
         
+        List<String> productIds = cart.getCartItems().stream().map(CartItem::getProductId).toList();
         cart.getCartItems().clear();
         cartRepository.save(cart);
+        productIds.forEach(productId -> releaseProductStock(userId, productId));
     }
 
     @Override
@@ -172,12 +182,49 @@ public class CartServiceImpl implements CartService {
                 .build();
     }
 
-    private void checkProductStock(String productId, Integer quantity) {
-        String url = productServiceUrl + "/api/products/" + productId + "/stock";
-        Integer availableStock = restTemplate.getForObject(url, Integer.class);
-        
-        if (availableStock == null || availableStock < quantity) {
-            throw new ValidationException("Insufficient stock available for product: " + productId);
+    private void holdProductStock(String userId, String productId, Integer quantity) {
+        String url = productServiceUrl + "/api/products/" + productId + "/holds/" + userId + "?quantity=" + quantity;
+        try {
+            restTemplate.put(url, null);
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode().isSameCodeAs(HttpStatus.NOT_FOUND)) {
+                throw new ResourceNotFoundException("Product not found: " + productId);
+            }
+            if (e.getStatusCode().isSameCodeAs(HttpStatus.CONFLICT)) {
+                throw new ValidationException("Insufficient stock available for product: " + productId);
+            }
+            throw new ValidationException("Could not hold stock for product " + productId + ": " + e.getStatusText());
+        }
+    }
+
+    /**
+     * Saves the cart, putting the stock hold back to what the stored cart had if the save fails.
+     */
+    private Cart saveOrRestoreHold(Cart cart, String userId, String productId, int heldQuantity) {
+        try {
+            return cartRepository.save(cart);
+        } catch (RuntimeException e) {
+            if (heldQuantity == 0) {
+                releaseProductStock(userId, productId);
+            } else {
+                try {
+                    holdProductStock(userId, productId, heldQuantity);
+                } catch (RuntimeException restoreFailure) {
+                    log.warn("Failed to restore stock hold on product {} for user {}: {}",
+                            productId, userId, restoreFailure.getMessage());
+                }
+            }
+            throw e;
+        }
+    }
+
+    private void releaseProductStock(String userId, String productId) {
+        String url = productServiceUrl + "/api/products/" + productId + "/holds/" + userId;
+        try {
+            restTemplate.delete(url);
+        } catch (RestClientException e) {
+            // The hold lapses on its own, a failed release only delays that
+            log.warn("Failed to release stock hold on product {} for user {}: {}", productId, userId, e.getMessage());
         }
     }
 } 
\ No newline at end of file
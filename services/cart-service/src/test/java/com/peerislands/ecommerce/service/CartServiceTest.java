@@ -5,6 +5,7 @@ import com.peerislands.ecommerce.dto.CartItemDTO;
 import com.peerislands.ecommerce.entity.Cart;
 import com.peerislands.ecommerce.entity.CartItem;
 import com.peerislands.ecommerce.exception.CartNotFoundException;
+import com.peerislands.ecommerce.exception.ValidationException;
 import com.peerislands.ecommerce.repository.CartRepository;
 import com.peerislands.ecommerce.service.impl.CartServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +14,9 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
@@ -20,6 +24,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -60,6 +66,8 @@ class CartServiceTest {
         // Setup cart DTO
         cartDTO = new CartDTO("CART-001", "user123", new ArrayList<>(), 199.98);
         cartDTO.getCartItems().add(cartItemDTO);
+
+        ReflectionTestUtils.setField(cartService, "productServiceUrl", "http://product-service");
     }
 
     @Test
@@ -77,6 +85,72 @@ class CartServiceTest {
         verify(cartRepository).findByUserId("user123");
     }
 
+    @Test
+    void addItemToCart_WhenItemExists_ShouldExtendHoldToTotalQuantity() {
+        // Arrange
+        when(cartRepository.findByUserId("user123")).thenReturn(Optional.of(cart));
+        when(cartRepository.save(any(Cart.class))).thenReturn(cart);
+
+        // Act
+        CartDTO result = cartService.addItemToCart("user123", cartItemDTO);
+
+        // Assert
+        assertEquals(4, result.getCartItems().get(0).getQuantity());
+        verify(restTemplate).put("http://product-service/api/products/PROD-001/holds/user123?quantity=4", null);
+    }
+
+    @Test
+    void addItemToCart_WhenHoldRejected_ShouldNotSaveCart() {
+        // Arrange
+        when(cartRepository.findByUserId("user123")).thenReturn(Optional.of(cart));
+        doThrow(new HttpClientErrorException(HttpStatus.CONFLICT))
+                .when(restTemplate).put(anyString(), isNull());
+
+        // Act & Assert
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> cartService.addItemToCart("user123", cartItemDTO));
+        assertTrue(e.getMessage().startsWith("Insufficient stock"));
+        verify(cartRepository, never()).save(any(Cart.class));
+    }
+
+    @Test
+    void addItemToCart_WhenHoldRequestInvalid_ShouldNotReportInsufficientStock() {
+        // Arrange
+        when(cartRepository.findByUserId("user123")).thenReturn(Optional.of(cart));
+        doThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST))
+                .when(restTemplate).put(anyString(), isNull());
+
+        // Act & Assert
+        ValidationException e = assertThrows(ValidationException.class,
+                () -> cartService.addItemToCart("user123", cartItemDTO));
+        assertFalse(e.getMessage().startsWith("Insufficient stock"));
+    }
+
+    @Test
+    void addItemToCart_WhenSaveFails_ShouldReleaseNewHold() {
+        // Arrange
+        when(cartRepository.findByUserId("user123")).thenReturn(Optional.of(new Cart("CART-001", "user123", new ArrayList<>())));
+        when(cartRepository.save(any(Cart.class))).thenThrow(new IllegalStateException("Mongo unavailable"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> cartService.addItemToCart("user123", cartItemDTO));
+        verify(restTemplate).put("http://product-service/api/products/PROD-001/holds/user123?quantity=2", null);
+        verify(restTemplate).delete("http://product-service/api/products/PROD-001/holds/user123");
+    }
+
+    @Test
+    void addItemToCart_WhenSaveFails_ShouldRestorePreviousHold() {
+        // Arrange
+        when(cartRepository.findByUserId("user123")).thenReturn(Optional.of(cart));
+        when(cartRepository.save(any(Cart.class))).thenThrow(new IllegalStateException("Mongo unavailable"));
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> cartService.addItemToCart("user123", cartItemDTO));
+        verify(restTemplate).put("http://product-service/api/products/PROD-001/holds/user123?quantity=4", null);
+        verify(restTemplate).put("http://product-service/api/products/PROD-001/holds/user123?quantity=2", null);
+        verify(restTemplate, never()).delete(anyString());
+    }
+
     @Test
     void removeItemFromCart_WhenItemExists_ShouldRemoveItem() {
         // Arrange
@@ -91,6 +165,7 @@ class CartServiceTest {
         assertTrue(result.getCartItems().isEmpty());
         verify(cartRepository).findByUserId("user123");
         verify(cartRepository).save(any(Cart.class));
+        verify(restTemplate).delete("http://product-service/api/products/PROD-001/holds/user123");
     }
 
     @Test
@@ -0,0 +1,38 @@
+package com.peerislands.ecommerce.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Identifies the caller of each request by a header propagated from the client, such as a user or
+ * session id. Requests without it are not tracked: behind the gateway every request comes from the
+ * same address, so pinning by address would keep all traffic on the primary after any write.
+ */
+@RequiredArgsConstructor
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final String callerHeader;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String caller = request.getHeader(callerHeader);
+        if (caller == null || caller.isBlank()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        readYourWritesTracker.setCaller(caller);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            readYourWritesTracker.clearCaller();
+        }
+    }
+}
@@ -13,4 +13,5 @@ public class StockUpdateDTO {
 
     private Integer quantity;
     private String operation; // e.g., DECREASE
+    private String holderId; // cart whose stock hold this decrease consumes, if any
 }
@@ -38,6 +38,7 @@ public class OrderServiceImpl implements OrderService {
     private String cartServiceUrl;
 
     @Override
+    @Transactional(readOnly = true)
     public List<OrderDTO> getAllOrders() {
         return orderRepository.findAll().stream()
                 .map(this::convertToDTO)
@@ -45,6 +46,7 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<OrderDTO> getOrdersByStatus(Order.OrderStatus status){
         return orderRepository.findByOrderStatus(status).stream()
                 .map(this::convertToDTO)
@@ -52,6 +54,7 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public OrderDTO getOrderById(Long id) {
         return orderRepository.findById(id)
                 .map(this::convertToDTO)
@@ -62,7 +65,7 @@ public class OrderServiceImpl implements OrderService {
     @Transactional
     public OrderDTO createOrder(OrderDTO orderDTO) {
         validateOrder(orderDTO);
-        validateStockAvailability(orderDTO.getOrderItems());
+        validateStockAvailability(orderDTO.getOrderItems(), orderDTO.getUserId());
         
         Order order = convertToEntity(orderDTO);
         order.setOrderStatus(Order.OrderStatus.PENDING);
@@ -70,7 +73,7 @@ public class OrderServiceImpl implements OrderService {
 
         try {
             // Update product stock
-            updateProductStock(orderDTO.getOrderItems());
+            updateProductStock(orderDTO.getOrderItems(), orderDTO.getUserId());
             
             // Clear user's cart
             clearUserCart(orderDTO.getUserId());
@@ -92,7 +95,7 @@ public class OrderServiceImpl implements OrderService {
                 .orElseThrow(() -> new OrderNotFoundException("Order not found with id: " + id));
 
         validateOrder(orderDTO);
-        validateStockAvailability(orderDTO.getOrderItems());
+        validateStockAvailability(orderDTO.getOrderItems(), orderDTO.getUserId());
 
         Order order = convertToEntity(orderDTO);
         order.setId(id);
@@ -109,6 +112,7 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<OrderDTO> getOrdersByUserId(String userId) {
         return orderRepository.findByUserId(userId).stream()
                 .map(this::convertToDTO)
@@ -160,9 +164,10 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
-    private void validateStockAvailability(List<OrderItemDTO> orderItems) {
+    private void validateStockAvailability(List<OrderItemDTO> orderItems, String userId) {
         for (OrderItemDTO item : orderItems) {
-            String url = productServiceUrl + "/api/products/" + item.getProductId() + "/stock";
+            // Units the user's cart holds count as available to this order
+            String url = productServiceUrl + "/api/products/" + item.getProductId() + "/stock?holderId=" + userId;
             Integer response = restTemplate.getForObject(url, Integer.class);
             
             if (response == null) {
@@ -180,12 +185,13 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
-    private void updateProductStock(List<OrderItemDTO> orderItems) {
+    private void updateProductStock(List<OrderItemDTO> orderItems, String userId) {
         for (OrderItemDTO item : orderItems) {
             String url = productServiceUrl + "/api/products/" + item.getProductId() + "/stock/update";
             StockUpdateDTO stockUpdateDTO = StockUpdateDTO.builder()
                 .quantity(item.getQuantity())
                 .operation("DECREASE")
+                .holderId(userId)
                 .build();
             
             try {
@@ -0,0 +1,43 @@
+package com.peerislands.ecommerce.datasource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofSeconds(2));
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(tracker, "X-User-Id");
+
+    @Test
+    void writeByCaller_PinsOnlyThatCaller() throws Exception {
+        MockHttpServletRequest write = new MockHttpServletRequest();
+        write.addHeader("X-User-Id", "user1");
+        filter.doFilter(write, new MockHttpServletResponse(), (request, response) -> tracker.recordWrite());
+
+        assertTrue(recentlyWrote("user1"));
+        assertFalse(recentlyWrote("user2"));
+    }
+
+    @Test
+    void requestsWithoutCaller_AreNotPinned() throws Exception {
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> tracker.recordWrite());
+
+        assertFalse(recentlyWrote(null));
+    }
+
+    private boolean recentlyWrote(String caller) throws Exception {
+        MockHttpServletRequest read = new MockHttpServletRequest();
+        if (caller != null) {
+            read.addHeader("X-User-Id", caller);
+        }
+        AtomicBoolean pinned = new AtomicBoolean();
+        filter.doFilter(read, new MockHttpServletResponse(), (request, response) -> pinned.set(tracker.recentlyWrote()));
+        return pinned.get();
+    }
+}
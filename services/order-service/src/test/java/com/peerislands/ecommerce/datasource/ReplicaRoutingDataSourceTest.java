@@ -0,0 +1,89 @@
+package com.peerislands.ecommerce.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofMinutes(1));
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @AfterEach
+    void tearDown() {
+        tracker.clearCaller();
+    }
+
+    private DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists node (name varchar(20))");
+        jdbcTemplate.update("delete from node");
+        jdbcTemplate.update("insert into node values (?)", name);
+        return dataSource;
+    }
+
+    private void route(DataSource primary, DataSource replica) {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primary, replica, tracker, Duration.ofMinutes(1)));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    private String readNode(TransactionTemplate template) {
+        return template.execute(status -> jdbcTemplate.queryForObject("select name from node", String.class));
+    }
+
+    @Test
+    void readOnlyTransactions_UseReplica() {
+        route(database("primary"), database("replica"));
+
+        assertEquals("replica", readNode(readOnly));
+        assertEquals("primary", readNode(readWrite));
+        assertEquals("primary", jdbcTemplate.queryForObject("select name from node", String.class));
+    }
+
+    @Test
+    void callerThatWrote_ReadsFromPrimaryWithinWindow() {
+        route(database("primary"), database("replica"));
+        tracker.setCaller("user1");
+
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("update node set name = 'written'"));
+
+        assertEquals("written", readNode(readOnly));
+        tracker.setCaller("user2");
+        assertEquals("replica", readNode(readOnly));
+    }
+
+    @Test
+    void readsPinnedToPrimary_SkipReplica() {
+        route(database("primary"), database("replica"));
+
+        assertEquals("primary", ReplicaRoutingDataSource.onPrimary(() -> readNode(readOnly)));
+        assertEquals("replica", readNode(readOnly));
+    }
+
+    @Test
+    void unavailableReplica_FallsBackToPrimary() {
+        DataSource replica = new DriverManagerDataSource("jdbc:h2:mem:missing;IFEXISTS=TRUE", "sa", "");
+        route(database("primary"), replica);
+
+        assertEquals("primary", readNode(readOnly));
+        assertEquals("primary", readNode(readOnly));
+    }
+}
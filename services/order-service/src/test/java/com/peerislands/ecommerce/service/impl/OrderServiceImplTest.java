@@ -2,6 +2,7 @@ package com.peerislands.ecommerce.service.impl;
 
 import com.peerislands.ecommerce.dto.OrderDTO;
 import com.peerislands.ecommerce.dto.OrderItemDTO;
+import com.peerislands.ecommerce.dto.StockUpdateDTO;
 import com.peerislands.ecommerce.entity.Order;
 import com.peerislands.ecommerce.entity.OrderItem;
 import com.peerislands.ecommerce.exception.OrderNotFoundException;
@@ -116,6 +117,16 @@ class OrderServiceImplTest {
         assertEquals(Order.OrderStatus.PENDING, result.getOrderStatus());
     }
 
+    @Test
+    void testCreateOrder_ConsumesCartStockHold() {
+        OrderDTO dto = sampleOrderDTO();
+        when(restTemplate.getForObject("http://product-service/api/products/101/stock?holderId=user1", Integer.class)).thenReturn(2);
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+        orderService.createOrder(dto);
+        verify(restTemplate).exchange(eq("http://product-service/api/products/101/stock/update"), eq(HttpMethod.POST),
+                argThat((HttpEntity<StockUpdateDTO> entity) -> "user1".equals(entity.getBody().getHolderId())), eq(Object.class));
+    }
+
     @Test
     void testCreateOrder_StockUnavailable() {
         OrderDTO dto = sampleOrderDTO();
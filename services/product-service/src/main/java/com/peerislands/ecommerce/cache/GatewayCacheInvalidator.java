@@ -0,0 +1,109 @@
+package com.peerislands.ecommerce.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.peerislands.ecommerce.support.TransactionCallbacks.afterCommit;
+
+/**
+ * Tells every api-gateway instance to drop its cached product responses after a write.
+ * <p>
+ * Invalidations are queued once the writing transaction commits, so the gateway cannot
+ * re-cache the old data, and are sent in one call per gateway on a short fixed delay. Stock
+ * changes drop the product's own paths and the listing and search responses, which carry stock
+ * too, but leave other products' pages cached.
+ */
+@Slf4j
+@Component
+public class GatewayCacheInvalidator {
+
+    static final String INVALIDATIONS_PATH = "/internal/cache/invalidations";
+    static final String TOKEN_HEADER = "X-Cache-Invalidation-Token";
+    private static final String PRODUCTS_PATH = "/api/products";
+    // Listing, ?ids= lookups and search, exactly these paths with any query
+    private static final List<String> STOCK_LISTING_PATHS = List.of(PRODUCTS_PATH, PRODUCTS_PATH + "/search");
+
+    private final DiscoveryClient discoveryClient;
+    private final RestTemplate restTemplate;
+    private final String gatewayServiceId;
+    private final String routeId;
+    private final String invalidationToken;
+
+    private final Set<String> pendingPaths = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean pendingAll = new AtomicBoolean();
+
+    public GatewayCacheInvalidator(
+            DiscoveryClient discoveryClient,
+            RestTemplate restTemplate,
+            @Value("${product.gateway-cache.service-id:API-GATEWAY}") String gatewayServiceId,
+            @Value("${product.gateway-cache.route-id:product-service}") String routeId,
+            @Value("${product.gateway-cache.invalidation-token:}") String invalidationToken) {
+        this.discoveryClient = discoveryClient;
+        this.restTemplate = restTemplate;
+        this.gatewayServiceId = gatewayServiceId;
+        this.routeId = routeId;
+        this.invalidationToken = invalidationToken;
+    }
+
+    /**
+     * Drops every cached product response, for writes that change listings and search results.
+     */
+    public void invalidateAll() {
+        afterCommit(() -> pendingAll.set(true));
+    }
+
+    /**
+     * Drops the cached responses of one product and its sub-resources, and the listings showing its stock.
+     */
+    public void invalidateProduct(Integer id) {
+        afterCommit(() -> pendingPaths.add(PRODUCTS_PATH + "/" + id));
+    }
+
+    @Scheduled(fixedDelayString = "${product.gateway-cache.flush-interval-ms:200}")
+    public void flush() {
+        List<String> paths = new ArrayList<>();
+        for (Iterator<String> it = pendingPaths.iterator(); it.hasNext(); ) {
+            paths.add(it.next());
+            it.remove();
+        }
+        if (pendingAll.getAndSet(false)) {
+            send(List.of(), List.of());
+        } else if (!paths.isEmpty()) {
+            send(paths, STOCK_LISTING_PATHS);
+        }
+    }
+
+    private void send(List<String> pathPrefixes, List<String> paths) {
+        HttpHeaders headers = new HttpHeaders();
+        if (!invalidationToken.isEmpty()) {
+            headers.set(TOKEN_HEADER, invalidationToken);
+        }
+        HttpEntity<InvalidationRequest> request = new HttpEntity<>(new InvalidationRequest(routeId, pathPrefixes, paths), headers);
+        for (ServiceInstance gateway : discoveryClient.getInstances(gatewayServiceId)) {
+            try {
+                restTemplate.postForEntity(gateway.getUri() + INVALIDATIONS_PATH, request, Void.class);
+            } catch (RestClientException e) {
+                // The gateway's TTL still bounds how long it serves the stale response
+                log.warn("Failed to invalidate gateway cache at {}: {}", gateway.getUri(), e.getMessage());
+            }
+        }
+    }
+
+    record InvalidationRequest(String routeId, List<String> pathPrefixes, List<String> paths) {
+    }
+}
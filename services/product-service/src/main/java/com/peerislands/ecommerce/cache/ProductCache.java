@@ -0,0 +1,85 @@
+package com.peerislands.ecommerce.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.peerislands.ecommerce.entity.Product;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * In-process cache for product lookups and stock levels.
+ * <p>
+ * Stock entries live in their own cache whose write expiry is the maximum staleness
+ * a stock read may have, independent of the (longer lived) product entries.
+ */
+@Component
+public class ProductCache implements MeterBinder {
+
+    public static final String PRODUCTS = "products";
+    public static final String STOCK = "stock";
+
+    private final Cache<Integer, Product> products;
+    private final Cache<Integer, Integer> stock;
+
+    public ProductCache(
+            @Value("${product.cache.products.maximum-size:10000}") long productsMaximumSize,
+            @Value("${product.cache.products.expire-after-write:10m}") Duration productsExpireAfterWrite,
+            @Value("${product.cache.stock.maximum-size:10000}") long stockMaximumSize,
+            @Value("${product.cache.stock.max-staleness:2s}") Duration stockMaxStaleness) {
+        this.products = Caffeine.newBuilder()
+                .maximumSize(productsMaximumSize)
+                .expireAfterWrite(productsExpireAfterWrite)
+                .recordStats()
+                .build();
+        this.stock = Caffeine.newBuilder()
+                .maximumSize(stockMaximumSize)
+                .expireAfterWrite(stockMaxStaleness)
+                .recordStats()
+                .build();
+    }
+
+    public Product getProduct(Integer id, Function<Integer, Product> loader) {
+        return products.get(id, loader);
+    }
+
+    public Map<Integer, Product> getAllPresentProducts(Collection<Integer> ids) {
+        return products.getAllPresent(ids);
+    }
+
+    public int getStock(Integer id, Function<Integer, Integer> loader) {
+        return stock.get(id, loader);
+    }
+
+    public void put(Product product) {
+        products.put(product.getId(), product);
+        stock.put(product.getId(), product.getAvailableStock());
+    }
+
+    public void evict(Integer id) {
+        products.invalidate(id);
+        stock.invalidate(id);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bind(registry, products, PRODUCTS);
+        bind(registry, stock, STOCK);
+    }
+
+    private void bind(MeterRegistry registry, Cache<Integer, ?> cache, String name) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        Gauge.builder("cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", name)
+                .description("Ratio of cache lookups that were hits")
+                .register(registry);
+    }
+}
@@ -1,16 +1,29 @@
 package com.peerislands.ecommerce.controller;
 
+import com.peerislands.ecommerce.dto.ProductBatchDTO;
+import com.peerislands.ecommerce.dto.ProductBatchRequestDTO;
+import com.peerislands.ecommerce.dto.ProductChangesDTO;
+import com.peerislands.ecommerce.dto.ProductImportReportDTO;
+import com.peerislands.ecommerce.dto.ProductSearchResultDTO;
+import com.peerislands.ecommerce.dto.ProductSnapshotDTO;
+import com.peerislands.ecommerce.dto.StockHoldDTO;
 import com.peerislands.ecommerce.dto.StockUpdateDTO;
 import com.peerislands.ecommerce.entity.Product;
+import com.peerislands.ecommerce.service.ProductChangeFeedService;
+import com.peerislands.ecommerce.service.ProductCsvService;
 import com.peerislands.ecommerce.service.ProductService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -19,12 +32,64 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductCsvService productCsvService;
+    private final ProductChangeFeedService productChangeFeedService;
 
     @GetMapping
     public ResponseEntity<List<Product>> getAllProducts() {
         return ResponseEntity.ok(productService.getAllProducts());
     }
 
+    @GetMapping(params = "ids")
+    public ResponseEntity<ProductBatchDTO<?>> getProductsByIds(
+            @RequestParam List<Integer> ids,
+            @RequestParam(defaultValue = "false") boolean slim) {
+        return ResponseEntity.ok(lookupBatch(ids, slim));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<ProductBatchDTO<?>> getProductsByIds(@RequestBody ProductBatchRequestDTO request) {
+        return ResponseEntity.ok(lookupBatch(request.getIds(), request.isSlim()));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<ProductSearchResultDTO> searchProducts(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(productService.searchProducts(q, minPrice, maxPrice, inStock, page, size));
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ProductImportReportDTO> importProducts(InputStream csv) {
+        return ResponseEntity.ok(productCsvService.importProducts(csv));
+    }
+
+    @GetMapping(value = "/export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products.csv")
+                .body(productCsvService::exportProducts);
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<ProductChangesDTO> getChanges(
+            @RequestParam(defaultValue = "0") long since,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(productChangeFeedService.getChanges(since, limit));
+    }
+
+    @GetMapping("/changes/snapshot")
+    public ResponseEntity<ProductSnapshotDTO> getSnapshot(
+            @RequestParam(required = false) Long version,
+            @RequestParam(defaultValue = "0") int afterId,
+            @RequestParam(defaultValue = "500") int limit) {
+        return ResponseEntity.ok(productChangeFeedService.getSnapshot(version, afterId, limit));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Integer id) {
         return ResponseEntity.ok(productService.getProductById(id));
@@ -49,8 +114,27 @@ public class ProductController {
     }
 
     @GetMapping("/{id}/stock")
-    public ResponseEntity<Integer> getStockQuantity(@PathVariable Integer id) {
-        return ResponseEntity.ok(productService.getStockQuantity(id));
+    public ResponseEntity<Integer> getStockQuantity(
+            @PathVariable Integer id,
+            @RequestParam(required = false) String holderId) {
+        return ResponseEntity.ok(productService.getStockQuantity(id, holderId));
+    }
+
+    @PutMapping("/{id}/holds/{holderId}")
+    public ResponseEntity<StockHoldDTO> placeStockHold(
+            @PathVariable Integer id,
+            @PathVariable @NotBlank String holderId,
+            @RequestParam @Positive Integer quantity,
+            @RequestParam(required = false) @Positive Long ttlSeconds) {
+        return ResponseEntity.ok(productService.placeStockHold(id, holderId, quantity, ttlSeconds));
+    }
+
+    @DeleteMapping("/{id}/holds/{holderId}")
+    public ResponseEntity<Void> releaseStockHold(
+            @PathVariable Integer id,
+            @PathVariable @NotBlank String holderId) {
+        productService.releaseStockHold(id, holderId);
+        return ResponseEntity.noContent().build();
     }
 
     @PatchMapping("/{id}/stock")
@@ -75,4 +159,8 @@ public class ProductController {
         productService.addProductToCart(userId, productId, quantity);
         return ResponseEntity.ok().build();
     }
+
+    private ProductBatchDTO<?> lookupBatch(List<Integer> ids, boolean slim) {
+        return slim ? productService.getProductSummariesByIds(ids) : productService.getProductsByIds(ids);
+    }
 }
@@ -0,0 +1,42 @@
+package com.peerislands.ecommerce.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+
+/**
+ * Remembers which callers wrote recently so their reads can be kept off a lagging replica.
+ * The caller of the current request is bound to the thread by {@link ReadYourWritesFilter}.
+ */
+public class ReadYourWritesTracker {
+
+    private final ThreadLocal<String> currentCaller = new ThreadLocal<>();
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesTracker(Duration window) {
+        this.recentWriters = window.isZero() ? null : Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public void setCaller(String caller) {
+        currentCaller.set(caller);
+    }
+
+    public void clearCaller() {
+        currentCaller.remove();
+    }
+
+    public void recordWrite() {
+        String caller = currentCaller.get();
+        if (caller != null && recentWriters != null) {
+            recentWriters.put(caller, Boolean.TRUE);
+        }
+    }
+
+    public boolean recentlyWrote() {
+        String caller = currentCaller.get();
+        return caller != null && recentWriters != null && recentWriters.getIfPresent(caller) != null;
+    }
+}
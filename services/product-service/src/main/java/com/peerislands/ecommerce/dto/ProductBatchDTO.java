@@ -0,0 +1,17 @@
+package com.peerislands.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductBatchDTO<T> {
+    private List<T> products; // in request order
+    private List<Integer> missingIds;
+}
@@ -0,0 +1,19 @@
+package com.peerislands.ecommerce.dto;
+
+import com.peerislands.ecommerce.entity.ProductChange;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductChangesDTO {
+    private List<ProductChange> changes;
+    private long nextSince;
+    private boolean hasMore;
+}
@@ -0,0 +1,23 @@
+package com.peerislands.ecommerce.dto;
+
+import com.peerislands.ecommerce.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResultDTO {
+    private List<Product> products;
+    private long totalHits;
+    private int page;
+    private int size;
+    private Map<String, Long> priceFacets;
+    private long inStockCount;
+}
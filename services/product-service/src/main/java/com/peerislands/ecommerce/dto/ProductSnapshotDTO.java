@@ -0,0 +1,20 @@
+package com.peerislands.ecommerce.dto;
+
+import com.peerislands.ecommerce.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSnapshotDTO {
+    private long version;
+    private List<Product> products;
+    private int nextAfterId;
+    private boolean hasMore;
+}
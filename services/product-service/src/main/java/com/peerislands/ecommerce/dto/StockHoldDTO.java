@@ -0,0 +1,20 @@
+package com.peerislands.ecommerce.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockHoldDTO {
+
+    private Integer productId;
+    private String holderId;
+    private Integer quantity;
+    private Instant expiresAt;
+}
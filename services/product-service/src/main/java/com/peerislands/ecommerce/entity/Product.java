@@ -9,6 +9,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 
@@ -17,8 +19,13 @@ import java.math.BigDecimal;
 @Builder
 @Data
 @Entity
+@Cacheable
+// READ_WRITE soft-locks an entry while a transaction updates it, so readers never see uncommitted state
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Product.CACHE_REGION)
 public class Product {
 
+    public static final String CACHE_REGION = "product";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
@@ -0,0 +1,57 @@
+package com.peerislands.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Entry of the product change log. Each entry carries the full state of the product after the
+ * change (only the id for deletions), so applying the latest entry per product is enough to
+ * bring a replica up to date.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Entity
+@Table(name = "product_change", indexes = {
+        @Index(name = "idx_product_change_product", columnList = "product_id, version"),
+        @Index(name = "idx_product_change_changed_at", columnList = "changed_at")
+})
+public class ProductChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long version;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 20)
+    private ChangeType changeType;
+
+    private String name;
+
+    private String description;
+
+    private BigDecimal price;
+
+    @Column(name = "available_stock")
+    private Integer availableStock;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        STOCK_CHANGED,
+        DELETED
+    }
+}
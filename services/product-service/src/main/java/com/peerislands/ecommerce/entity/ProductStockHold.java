@@ -0,0 +1,42 @@
+package com.peerislands.ecommerce.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Units of a product held for a cart until {@code expiresAt}. A holder has at most one hold per
+ * product; placing it again replaces the quantity and restarts the expiry.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@Entity
+@Table(name = "product_stock_hold", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_product_stock_hold_holder", columnNames = {"product_id", "holder_id"})
+}, indexes = {
+        @Index(name = "idx_product_stock_hold_expires_at", columnList = "expires_at")
+})
+public class ProductStockHold {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Integer productId;
+
+    @Column(name = "holder_id", nullable = false, length = 100)
+    private String holderId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,11 @@
+package com.peerislands.ecommerce.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class InsufficientStockException extends ValidationException {
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,165 @@
+package com.peerislands.ecommerce.inventory;
+
+import com.peerislands.ecommerce.datasource.ReplicaRoutingDataSource;
+import com.peerislands.ecommerce.entity.ProductChange;
+import com.peerislands.ecommerce.exception.InventoryUnavailableException;
+import com.peerislands.ecommerce.repository.ProductRepository;
+import com.peerislands.ecommerce.service.ProductChangeFeedService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Owns the stock of products flagged as hot (product.inventory.hot-products) in memory.
+ * <p>
+ * Reservations against a hot product are applied to a {@link StripedStockCounter} without
+ * touching MySQL; the accumulated net change per product is written back periodically, one
+ * UPDATE per product and one transaction per flush. The counters are seeded from the persisted
+ * stock before the web server starts, and flushed once more after it stops; both read the primary,
+ * never a lagging replica. Each flush also records the persisted stock in the product change
+ * feed. A single product-service instance owns the hot products, which {@link InventoryOwnerLock}
+ * enforces, and reservations made after the last flush are lost if the process dies without
+ * shutting down.
+ */
+@Slf4j
+@Component
+public class HotStockLedger implements SmartLifecycle {
+
+    // Seeded before the web server (a later phase) accepts requests, and flushed after it stops
+    private static final int PHASE = 0;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductChangeFeedService productChangeFeedService;
+    private final Set<Integer> hotProductIds;
+    private final int stripes;
+    private final Optional<InventoryOwnerLock> ownerLock;
+    private final Map<Integer, StripedStockCounter> counters = new ConcurrentHashMap<>();
+    private volatile boolean running;
+
+    public HotStockLedger(
+            ProductRepository productRepository,
+            TransactionTemplate transactionTemplate,
+            ProductChangeFeedService productChangeFeedService,
+            @Value("${product.inventory.hot-products:}") Set<Integer> hotProductIds,
+            @Value("${product.inventory.stripes:8}") int stripes,
+            Optional<InventoryOwnerLock> ownerLock) {
+        this.productRepository = productRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.productChangeFeedService = productChangeFeedService;
+        this.hotProductIds = hotProductIds;
+        this.stripes = stripes;
+        this.ownerLock = ownerLock;
+    }
+
+    @Override
+    public void start() {
+        reconcile();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        flush();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    void reconcile() {
+        for (Integer id : hotProductIds) {
+            ReplicaRoutingDataSource.onPrimary(() -> productRepository.findById(id)).ifPresentOrElse(
+                    product -> counters.put(id, new StripedStockCounter(stripes, product.getAvailableStock())),
+                    () -> log.warn("Hot product {} does not exist, serving it from the database", id));
+        }
+        if (!counters.isEmpty()) {
+            log.info("Inventory ledger tracking hot products {}", counters.keySet());
+        }
+    }
+
+    public boolean tracks(Integer productId) {
+        return counters.containsKey(productId);
+    }
+
+    public int available(Integer productId) {
+        return counter(productId).available();
+    }
+
+    public boolean tryReserve(Integer productId, int quantity) {
+        checkOwner();
+        return counter(productId).tryReserve(quantity);
+    }
+
+    public void add(Integer productId, int quantity) {
+        checkOwner();
+        counter(productId).add(quantity);
+    }
+
+    public void untrack(Integer productId) {
+        counters.remove(productId);
+    }
+
+    @Scheduled(fixedDelayString = "${product.inventory.flush-interval-ms:500}")
+    public void flush() {
+        Map<Integer, Long> deltas = new HashMap<>();
+        counters.forEach((id, counter) -> {
+            long delta = counter.drainPendingDelta();
+            if (delta != 0) {
+                deltas.put(id, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            ReplicaRoutingDataSource.onPrimary(() -> transactionTemplate.execute(status -> {
+                deltas.forEach((id, delta) -> {
+                    productRepository.adjustStock(id, Math.toIntExact(delta));
+                    productRepository.findById(id).ifPresent(product ->
+                            productChangeFeedService.record(product, ProductChange.ChangeType.STOCK_CHANGED));
+                });
+                return null;
+            }));
+        } catch (RuntimeException e) {
+            log.error("Failed to persist stock deltas {}, retrying on next flush", deltas, e);
+            deltas.forEach((id, delta) -> {
+                StripedStockCounter counter = counters.get(id);
+                if (counter != null) {
+                    counter.restorePendingDelta(delta);
+                }
+            });
+        }
+    }
+
+    // Changes already applied are still flushed, but a fenced instance takes no new ones
+    private void checkOwner() {
+        if (ownerLock.isPresent() && ownerLock.get().isFenced()) {
+            throw new InventoryUnavailableException("Another product-service instance owns the stock of hot products");
+        }
+    }
+
+    private StripedStockCounter counter(Integer productId) {
+        StripedStockCounter counter = counters.get(productId);
+        if (counter == null) {
+            throw new IllegalStateException("Product " + productId + " is not tracked by the inventory ledger");
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,157 @@
+package com.peerislands.ecommerce.inventory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Makes one product-service instance the owner of the hot products' stock, which
+ * {@link HotStockLedger} keeps in memory, by holding a MySQL named lock on a dedicated primary
+ * connection for the life of the process. Only created when hot products are configured; without
+ * them the service scales out freely.
+ * <p>
+ * A second instance waits up to {@code wait} for the lock, so a rolling restart can hand over once
+ * the old instance shuts down, and otherwise fails to start. If the connection drops the lock is
+ * taken again; if another instance took it in the meantime this one is fenced: the ledger refuses
+ * further reservations and the health check reports DOWN until the instance is restarted.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("!'${product.inventory.hot-products:}'.isBlank() and ${product.inventory.owner-lock.enabled:true}")
+public class InventoryOwnerLock implements HealthIndicator {
+
+    private final DataSource dataSource;
+    private final String name;
+    private final Duration wait;
+    private Connection connection;
+    private volatile boolean fenced;
+
+    public InventoryOwnerLock(
+            DataSource dataSource,
+            @Value("${product.inventory.owner-lock.name:product-service-inventory}") String name,
+            @Value("${product.inventory.owner-lock.wait:30s}") Duration wait) {
+        this.dataSource = dataSource;
+        this.name = name;
+        this.wait = wait;
+    }
+
+    @PostConstruct
+    public synchronized void acquire() {
+        boolean acquired;
+        try {
+            acquired = tryAcquire(wait);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not take the inventory lock '" + name + "'", e);
+        }
+        if (!acquired) {
+            throw new IllegalStateException("Another product-service instance holds the inventory lock '" + name
+                    + "'; stock holds and the hot stock ledger require a single instance");
+        }
+        log.info("Acquired inventory lock '{}'", name);
+    }
+
+    @Scheduled(fixedDelayString = "${product.inventory.owner-lock.check-interval-ms:10000}")
+    public synchronized void verify() {
+        if (fenced) {
+            return;
+        }
+        try {
+            if (holdsLock()) {
+                return;
+            }
+            close();
+            if (tryAcquire(Duration.ZERO)) {
+                log.warn("Inventory lock '{}' was lost and has been taken again", name);
+            } else {
+                fenced = true;
+                log.error("Inventory lock '{}' is held by another product-service instance; "
+                        + "refusing hot stock writes until restarted", name);
+            }
+        } catch (SQLException e) {
+            log.error("Could not check inventory lock '{}': {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether another instance took over the lock, so this one must no longer change hot stock.
+     */
+    public boolean isFenced() {
+        return fenced;
+    }
+
+    @Override
+    public Health health() {
+        return fenced ? Health.down().withDetail("inventoryLock", name).build() : Health.up().build();
+    }
+
+    @PreDestroy
+    public synchronized void release() {
+        if (connection == null) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, name);
+            statement.execute();
+        } catch (SQLException e) {
+            log.warn("Could not release inventory lock '{}': {}", name, e.getMessage());
+        }
+        close();
+    }
+
+    private boolean tryAcquire(Duration timeout) throws SQLException {
+        connection = dataSource.getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, name);
+            statement.setLong(2, timeout.toSeconds());
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next() && rs.getInt(1) == 1) {
+                    return true;
+                }
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+        close();
+        return false;
+    }
+
+    private boolean holdsLock() {
+        if (connection == null) {
+            return false;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT IS_USED_LOCK(?) = CONNECTION_ID()")) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void close() {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Could not close inventory lock connection: {}", e.getMessage());
+        }
+        connection = null;
+    }
+}
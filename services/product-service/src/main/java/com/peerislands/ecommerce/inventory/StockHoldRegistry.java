@@ -0,0 +1,132 @@
+package com.peerislands.ecommerce.inventory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.peerislands.ecommerce.entity.ProductStockHold;
+import com.peerislands.ecommerce.exception.InsufficientStockException;
+import com.peerislands.ecommerce.exception.ValidationException;
+import com.peerislands.ecommerce.repository.ProductStockHoldRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.peerislands.ecommerce.support.TransactionCallbacks.afterCommit;
+
+/**
+ * Time-limited stock holds placed by carts.
+ * <p>
+ * Holds are rows of {@code product_stock_hold}, so every product-service instance sees the same
+ * holds and they survive a restart. The table is indexed by product and holder, so a cart can
+ * extend or release its own hold and a deleted product drops only its own holds, and by expiry,
+ * so the sweeper releases every lapsed hold with one range delete instead of scanning all holds.
+ * Reads ignore expired rows, so a hold stops counting when it lapses, not when it is swept.
+ * <p>
+ * Placing a hold must run in the transaction that locked the product row, which serializes it
+ * with other holds and with stock decrements of that product. The units held per product are
+ * cached for at most {@code product.cache.stock.max-staleness}, like the stock they are taken from.
+ */
+@Slf4j
+@Component
+public class StockHoldRegistry {
+
+    private final ProductStockHoldRepository holdRepository;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final Cache<Integer, Integer> heldByProduct;
+
+    public StockHoldRegistry(
+            ProductStockHoldRepository holdRepository,
+            @Value("${product.inventory.holds.default-ttl:15m}") Duration defaultTtl,
+            @Value("${product.inventory.holds.max-ttl:1h}") Duration maxTtl,
+            @Value("${product.cache.stock.maximum-size:10000}") long maximumSize,
+            @Value("${product.cache.stock.max-staleness:2s}") Duration maxStaleness) {
+        this.holdRepository = holdRepository;
+        this.defaultTtl = defaultTtl;
+        this.maxTtl = maxTtl;
+        this.heldByProduct = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxStaleness)
+                .build();
+    }
+
+    /**
+     * Places or replaces the hold of {@code holderId} on a product, restarting its expiry.
+     *
+     * @param onHand current on-hand stock of the product, before any holds, read under the row lock
+     */
+    @Transactional
+    public ProductStockHold place(Integer productId, String holderId, int quantity, Duration ttl, int onHand) {
+        if (ttl == null) {
+            ttl = defaultTtl;
+        }
+        if (ttl.isNegative() || ttl.isZero() || ttl.compareTo(maxTtl) > 0) {
+            throw new ValidationException("Hold duration must be between 1 second and " + maxTtl.toSeconds() + " seconds");
+        }
+        Instant now = Instant.now();
+        if (onHand - holdRepository.sumActive(productId, holderId, now) < quantity) {
+            throw new InsufficientStockException("Insufficient stock available for product: " + productId);
+        }
+        ProductStockHold hold = holdRepository.findByProductIdAndHolderId(productId, holderId)
+                .orElseGet(() -> ProductStockHold.builder().productId(productId).holderId(holderId).build());
+        hold.setQuantity(quantity);
+        hold.setExpiresAt(now.plus(ttl));
+        ProductStockHold saved = holdRepository.save(hold);
+        afterCommit(() -> heldByProduct.invalidate(productId));
+        return saved;
+    }
+
+    /**
+     * Releases the hold of {@code holderId} on a product and returns the units it held.
+     */
+    @Transactional
+    public int release(Integer productId, String holderId) {
+        return holdRepository.findByProductIdAndHolderId(productId, holderId)
+                .map(hold -> {
+                    holdRepository.delete(hold);
+                    afterCommit(() -> heldByProduct.invalidate(productId));
+                    return hold.getExpiresAt().isAfter(Instant.now()) ? hold.getQuantity() : 0;
+                })
+                .orElse(0);
+    }
+
+    @Transactional
+    public void releaseAll(Integer productId) {
+        holdRepository.deleteAllHolds(productId);
+        afterCommit(() -> heldByProduct.invalidate(productId));
+    }
+
+    /**
+     * Units of a product currently held by all holders.
+     */
+    public int held(Integer productId) {
+        return heldByProduct.get(productId, id -> Math.toIntExact(holdRepository.sumActive(id, null, Instant.now())));
+    }
+
+    /**
+     * Units of a product currently held by holders other than {@code holderId}.
+     */
+    public int heldByOthers(Integer productId, String holderId) {
+        if (holderId == null) {
+            return held(productId);
+        }
+        return Math.toIntExact(holdRepository.sumActive(productId, holderId, Instant.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${product.inventory.holds.sweep-interval-ms:1000}")
+    public void expire() {
+        expireUntil(Instant.now());
+    }
+
+    int expireUntil(Instant now) {
+        int released = holdRepository.deleteExpired(now);
+        if (released > 0) {
+            log.debug("Released {} expired stock holds", released);
+        }
+        return released;
+    }
+}
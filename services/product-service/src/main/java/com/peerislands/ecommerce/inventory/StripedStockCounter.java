@@ -0,0 +1,151 @@
+package com.peerislands.ecommerce.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock level of a single product split across independently CAS-updated stripes, so that
+ * concurrent reservations rarely contend on the same memory word.
+ * <p>
+ * Every applied change is also accumulated in a striped pending delta which the ledger
+ * drains and persists to the database.
+ */
+class StripedStockCounter {
+
+    // Pad each slot onto its own cache line to avoid false sharing between stripes.
+    private static final int INT_PADDING = 16;
+    private static final int LONG_PADDING = 8;
+
+    private final int stripes;
+    private final AtomicIntegerArray stock;
+    private final AtomicLongArray pendingDelta;
+
+    StripedStockCounter(int stripes, int initialStock) {
+        this.stripes = stripes;
+        this.stock = new AtomicIntegerArray(stripes * INT_PADDING);
+        this.pendingDelta = new AtomicLongArray(stripes * LONG_PADDING);
+        int share = initialStock / stripes;
+        int remainder = initialStock % stripes;
+        for (int i = 0; i < stripes; i++) {
+            stock.set(i * INT_PADDING, share + (i < remainder ? 1 : 0));
+        }
+    }
+
+    /**
+     * Takes {@code quantity} units if that much stock is available.
+     */
+    boolean tryReserve(int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int slot = ((start + i) % stripes) * INT_PADDING;
+            int current = stock.get(slot);
+            while (current >= quantity) {
+                if (stock.compareAndSet(slot, current, current - quantity)) {
+                    recordDelta(start, -quantity);
+                    return true;
+                }
+                current = stock.get(slot);
+            }
+        }
+        return reserveAcrossStripes(quantity, start);
+    }
+
+    /**
+     * Adds {@code quantity} units; a negative value removes stock, at most as much as is left.
+     */
+    void add(int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        if (quantity < 0) {
+            remove(-quantity, start);
+            return;
+        }
+        stock.getAndAdd(start * INT_PADDING, quantity);
+        recordDelta(start, quantity);
+    }
+
+    int available() {
+        int total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += stock.get(i * INT_PADDING);
+        }
+        return Math.max(total, 0);
+    }
+
+    /**
+     * Returns and clears the net change applied since the previous drain.
+     */
+    long drainPendingDelta() {
+        long total = 0;
+        for (int i = 0; i < stripes; i++) {
+            total += pendingDelta.getAndSet(i * LONG_PADDING, 0);
+        }
+        return total;
+    }
+
+    /**
+     * Puts back a drained delta that could not be persisted.
+     */
+    void restorePendingDelta(long delta) {
+        pendingDelta.getAndAdd(0, delta);
+    }
+
+    // Slow path for requests no single stripe can satisfy; serialized so partial takes never interleave.
+    // Sweeps again while a sweep still finds units, so stock added behind the sweep or briefly held
+    // by the fast path is not mistaken for a shortage; only a sweep that finds nothing rejects.
+    private synchronized boolean reserveAcrossStripes(int quantity, int start) {
+        int remaining = quantity;
+        int[] taken = new int[stripes];
+        boolean progress = true;
+        while (remaining > 0 && progress) {
+            progress = false;
+            for (int i = 0; i < stripes && remaining > 0; i++) {
+                int stripe = (start + i) % stripes;
+                int slot = stripe * INT_PADDING;
+                int current = stock.get(slot);
+                while (current > 0) {
+                    int take = Math.min(current, remaining);
+                    if (stock.compareAndSet(slot, current, current - take)) {
+                        taken[stripe] += take;
+                        remaining -= take;
+                        progress = true;
+                        break;
+                    }
+                    current = stock.get(slot);
+                }
+            }
+        }
+        if (remaining > 0) {
+            for (int i = 0; i < stripes; i++) {
+                if (taken[i] > 0) {
+                    stock.getAndAdd(i * INT_PADDING, taken[i]);
+                }
+            }
+            return false;
+        }
+        recordDelta(start, -quantity);
+        return true;
+    }
+
+    // Takes from each stripe only what it holds, so no stripe goes negative while others still sell
+    private synchronized void remove(int quantity, int start) {
+        int remaining = quantity;
+        for (int i = 0; i < stripes && remaining > 0; i++) {
+            int slot = ((start + i) % stripes) * INT_PADDING;
+            int current = stock.get(slot);
+            while (current > 0) {
+                int take = Math.min(current, remaining);
+                if (stock.compareAndSet(slot, current, current - take)) {
+                    remaining -= take;
+                    break;
+                }
+                current = stock.get(slot);
+            }
+        }
+        recordDelta(start, remaining - quantity);
+    }
+
+    private void recordDelta(int stripe, int delta) {
+        pendingDelta.getAndAdd(stripe * LONG_PADDING, delta);
+    }
+}
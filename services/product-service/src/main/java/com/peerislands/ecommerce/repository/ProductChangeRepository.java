@@ -0,0 +1,28 @@
+package com.peerislands.ecommerce.repository;
+
+import com.peerislands.ecommerce.entity.ProductChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductChangeRepository extends JpaRepository<ProductChange, Long> {
+
+    List<ProductChange> findByVersionGreaterThanOrderByVersionAsc(Long version, Limit limit);
+
+    @Query("select coalesce(max(c.version), 0) from ProductChange c where c.changedAt <= :cutoff")
+    long findLatestVersionChangedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Versions older than {@code cutoff} for which a newer entry of the same product exists.
+     */
+    @Query("select c.version from ProductChange c where c.changedAt < :cutoff and exists " +
+            "(select n.version from ProductChange n where n.productId = c.productId and n.version > c.version) " +
+            "order by c.version")
+    List<Long> findSupersededVersions(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+}
@@ -1,9 +1,37 @@
 package com.peerislands.ecommerce.repository;
 
 import com.peerislands.ecommerce.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer> {
+public interface ProductRepository extends JpaRepository<Product, Integer>, ProductStockUpdates {
+
+    List<Product> findByIdIn(Collection<Integer> ids);
+
+    List<Product> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    /**
+     * Persisted stock of a product, read with the row locked until the caller's transaction ends.
+     */
+    @Query(value = "select available_stock from product where id = :id for update", nativeQuery = true)
+    Optional<Integer> lockStock(@Param("id") Integer id);
+
+    /**
+     * Full catalog listing. Typically read from a replica, so the entities it loads are taken from
+     * the second-level cache but never put into it, and the unbounded result is not query-cached.
+     */
+    @Query("select p from Product p")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "GET"))
+    List<Product> findCatalog();
 }
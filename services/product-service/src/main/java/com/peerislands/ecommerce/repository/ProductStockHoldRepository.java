@@ -0,0 +1,35 @@
+package com.peerislands.ecommerce.repository;
+
+import com.peerislands.ecommerce.entity.ProductStockHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface ProductStockHoldRepository extends JpaRepository<ProductStockHold, Long> {
+
+    Optional<ProductStockHold> findByProductIdAndHolderId(Integer productId, String holderId);
+
+    /**
+     * Units of a product held by unexpired holds, leaving out the hold of {@code holderId} if given.
+     */
+    @Query("select coalesce(sum(h.quantity), 0) from ProductStockHold h where h.productId = :productId "
+            + "and h.expiresAt > :now and (:holderId is null or h.holderId <> :holderId)")
+    long sumActive(@Param("productId") Integer productId, @Param("holderId") String holderId, @Param("now") Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ProductStockHold h where h.productId = :productId")
+    int deleteAllHolds(@Param("productId") Integer productId);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ProductStockHold h where h.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,31 @@
+package com.peerislands.ecommerce.repository;
+
+/**
+ * Stock changes applied as a single conditional UPDATE each, which evict only the changed
+ * product's second-level cache entry rather than the whole region. Each must run inside the
+ * caller's transaction, which holds the row lock until it ends.
+ */
+public interface ProductStockUpdates {
+
+    /**
+     * Atomically decreases stock only if at least {@code quantity} units remain once the unexpired
+     * holds of other holders than {@code holderId} (all holders if null) are set aside.
+     *
+     * @return number of rows updated; 0 if the product is missing or stock is insufficient
+     */
+    int decrementStock(Integer id, int quantity, String holderId);
+
+    /**
+     * Atomically increases stock by {@code quantity} units.
+     *
+     * @return number of rows updated; 0 if the product is missing
+     */
+    int incrementStock(Integer id, int quantity);
+
+    /**
+     * Atomically adds {@code delta} units, which may be negative, without a stock check.
+     *
+     * @return number of rows updated; 0 if the product is missing
+     */
+    int adjustStock(Integer id, int delta);
+}
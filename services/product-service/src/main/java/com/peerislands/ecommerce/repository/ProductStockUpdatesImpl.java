@@ -0,0 +1,70 @@
+package com.peerislands.ecommerce.repository;
+
+import com.peerislands.ecommerce.entity.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+
+import static com.peerislands.ecommerce.support.TransactionCallbacks.afterCommit;
+
+@Transactional
+class ProductStockUpdatesImpl implements ProductStockUpdates {
+
+    // Units held by other holders are set aside in the same statement, under the row lock it takes
+    private static final String DECREMENT_SQL = "update product set available_stock = available_stock - ? "
+            + "where id = ? and available_stock - ? >= (select coalesce(sum(h.quantity), 0) from product_stock_hold h "
+            + "where h.product_id = ? and h.expires_at > ? and h.holder_id <> coalesce(?, ''))";
+    private static final String ADJUST_SQL = "update product set available_stock = available_stock + ? where id = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int decrementStock(Integer id, int quantity, String holderId) {
+        return update(id, DECREMENT_SQL, quantity, id, quantity, id, Timestamp.from(Instant.now()), holderId);
+    }
+
+    @Override
+    public int incrementStock(Integer id, int quantity) {
+        return adjustStock(id, quantity);
+    }
+
+    @Override
+    public int adjustStock(Integer id, int delta) {
+        return update(id, ADJUST_SQL, delta, id);
+    }
+
+    // Issued over the session's JDBC connection, so Hibernate does not evict the whole product region
+    // as it does for bulk JPQL; only the updated product is evicted, again once the change is visible.
+    private int update(Integer id, String sql, Object... parameters) {
+        entityManager.flush();
+        int updated = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    if (parameters[i] == null) {
+                        statement.setNull(i + 1, Types.VARCHAR);
+                    } else {
+                        statement.setObject(i + 1, parameters[i]);
+                    }
+                }
+                return statement.executeUpdate();
+            }
+        });
+        if (updated > 0) {
+            entityManager.clear();
+            evict(id);
+            afterCommit(() -> evict(id));
+        }
+        return updated;
+    }
+
+    private void evict(Integer id) {
+        entityManager.getEntityManagerFactory().getCache().evict(Product.class, id);
+    }
+}
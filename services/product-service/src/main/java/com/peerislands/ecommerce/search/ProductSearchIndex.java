@@ -0,0 +1,244 @@
+package com.peerislands.ecommerce.search;
+
+import com.peerislands.ecommerce.dto.ProductSearchResultDTO;
+import com.peerislands.ecommerce.entity.Product;
+import com.peerislands.ecommerce.exception.ValidationException;
+import com.peerislands.ecommerce.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory Lucene index over product name and description.
+ * <p>
+ * Every stored product field is kept in the index so searches are answered without MySQL.
+ * Writes are applied to the index immediately and become visible to searches on the next
+ * refresh, which runs on a short fixed delay.
+ */
+@Slf4j
+@Component
+public class ProductSearchIndex {
+
+    private static final String ID = "id";
+    private static final String NAME = "name";
+    private static final String DESCRIPTION = "description";
+    private static final String PRICE = "price";
+    private static final String PRICE_VALUE = "price_value";
+    private static final String STOCK = "stock";
+    private static final String STOCK_VALUE = "stock_value";
+
+    private static final double[] PRICE_BUCKETS = {0, 50, 100, 250, 500};
+
+    private final ProductRepository productRepository;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    public ProductSearchIndex(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+        try {
+            this.writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+            this.searcherManager = new SearcherManager(writer, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open product search index", e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        try {
+            writer.deleteAll();
+            List<Product> products = productRepository.findAll();
+            for (Product product : products) {
+                writer.addDocument(toDocument(product));
+            }
+            searcherManager.maybeRefreshBlocking();
+            log.info("Indexed {} products for search", products.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to rebuild product search index", e);
+        }
+    }
+
+    public void index(Product product) {
+        try {
+            writer.updateDocument(new Term(ID, product.getId().toString()), toDocument(product));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to index product " + product.getId(), e);
+        }
+    }
+
+    public void remove(Integer id) {
+        try {
+            writer.deleteDocuments(new Term(ID, id.toString()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to remove product " + id + " from search index", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.search.refresh-interval-ms:1000}")
+    public void refresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("Failed to refresh product search index", e);
+        }
+    }
+
+    /**
+     * Ranks products by relevance to {@code text} (all products if blank), filtered by an
+     * optional price range and stock availability. Facet counts are computed over the
+     * text match alone so clients can show how many results each refinement would give.
+     */
+    public ProductSearchResultDTO search(String text, BigDecimal minPrice, BigDecimal maxPrice,
+                                         boolean inStockOnly, int page, int size) {
+        Query textQuery = parse(text);
+        BooleanQuery.Builder filtered = new BooleanQuery.Builder().add(textQuery, BooleanClause.Occur.MUST);
+        if (minPrice != null || maxPrice != null) {
+            filtered.add(DoublePoint.newRangeQuery(PRICE,
+                    minPrice == null ? Double.NEGATIVE_INFINITY : minPrice.doubleValue(),
+                    maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice.doubleValue()), BooleanClause.Occur.FILTER);
+        }
+        if (inStockOnly) {
+            filtered.add(inStockQuery(), BooleanClause.Occur.FILTER);
+        }
+
+        IndexSearcher searcher = acquire();
+        try {
+            TopDocs topDocs = searcher.search(filtered.build(), (page + 1) * size);
+            List<Product> products = new ArrayList<>();
+            ScoreDoc[] hits = topDocs.scoreDocs;
+            for (int i = page * size; i < hits.length; i++) {
+                products.add(toProduct(searcher.storedFields().document(hits[i].doc)));
+            }
+            return ProductSearchResultDTO.builder()
+                    .products(products)
+                    .totalHits(topDocs.totalHits.value)
+                    .page(page)
+                    .size(size)
+                    .priceFacets(priceFacets(searcher, textQuery))
+                    .inStockCount(searcher.count(and(textQuery, inStockQuery())))
+                    .build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Product search failed", e);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+
+    private Query parse(String text) {
+        if (text == null || text.isBlank()) {
+            return new MatchAllDocsQuery();
+        }
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(
+                new String[]{NAME, DESCRIPTION}, analyzer, Map.of(NAME, 2.0f, DESCRIPTION, 1.0f));
+        try {
+            return parser.parse(QueryParser.escape(text));
+        } catch (ParseException e) {
+            throw new ValidationException("Invalid search query: " + text);
+        }
+    }
+
+    private Map<String, Long> priceFacets(IndexSearcher searcher, Query textQuery) throws IOException {
+        Map<String, Long> facets = new LinkedHashMap<>();
+        for (int i = 0; i < PRICE_BUCKETS.length; i++) {
+            double lower = PRICE_BUCKETS[i];
+            boolean last = i == PRICE_BUCKETS.length - 1;
+            double upper = last ? Double.POSITIVE_INFINITY : Math.nextDown(PRICE_BUCKETS[i + 1]);
+            String label = last ? (long) lower + "+" : (long) lower + "-" + (long) PRICE_BUCKETS[i + 1];
+            facets.put(label, (long) searcher.count(and(textQuery, DoublePoint.newRangeQuery(PRICE, lower, upper))));
+        }
+        return facets;
+    }
+
+    private static Query inStockQuery() {
+        return IntPoint.newRangeQuery(STOCK, 1, Integer.MAX_VALUE);
+    }
+
+    private static Query and(Query query, Query filter) {
+        return new BooleanQuery.Builder()
+                .add(query, BooleanClause.Occur.MUST)
+                .add(filter, BooleanClause.Occur.FILTER)
+                .build();
+    }
+
+    private static Document toDocument(Product product) {
+        Document document = new Document();
+        document.add(new StringField(ID, product.getId().toString(), Field.Store.YES));
+        document.add(new TextField(NAME, product.getName(), Field.Store.YES));
+        if (product.getDescription() != null) {
+            document.add(new TextField(DESCRIPTION, product.getDescription(), Field.Store.YES));
+        }
+        document.add(new DoublePoint(PRICE, product.getPrice().doubleValue()));
+        document.add(new StoredField(PRICE_VALUE, product.getPrice().toPlainString()));
+        document.add(new IntPoint(STOCK, product.getAvailableStock()));
+        document.add(new StoredField(STOCK_VALUE, product.getAvailableStock()));
+        return document;
+    }
+
+    private static Product toProduct(Document document) {
+        return Product.builder()
+                .id(Integer.valueOf(document.get(ID)))
+                .name(document.get(NAME))
+                .description(document.get(DESCRIPTION))
+                .price(new BigDecimal(document.get(PRICE_VALUE)))
+                .availableStock(document.getField(STOCK_VALUE).numericValue().intValue())
+                .build();
+    }
+
+    private IndexSearcher acquire() {
+        try {
+            return searcherManager.acquire();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to acquire product searcher", e);
+        }
+    }
+
+    private void release(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException e) {
+            log.warn("Failed to release product searcher", e);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.peerislands.ecommerce.service;
+
+import com.peerislands.ecommerce.dto.ProductChangesDTO;
+import com.peerislands.ecommerce.dto.ProductSnapshotDTO;
+import com.peerislands.ecommerce.entity.Product;
+import com.peerislands.ecommerce.entity.ProductChange;
+import com.peerislands.ecommerce.exception.ValidationException;
+import com.peerislands.ecommerce.repository.ProductChangeRepository;
+import com.peerislands.ecommerce.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned log of product changes that lets other services keep product replicas in sync.
+ * <p>
+ * Entries are written in the transaction of the change they describe and their version is an
+ * auto-increment key. The insert is deferred to just before commit, once the transaction's
+ * other writes have been flushed, so a version is taken moments before it becomes visible no
+ * matter how long the transaction ran. A transaction can still commit just after one that was
+ * given a higher version, so a recent gap in the sequence is treated as a possibly in-flight
+ * write: reads stop before it until it is older than {@code product.change-feed.settle-window}.
+ * Compaction removes entries older than {@code product.change-feed.retention} that have been
+ * superseded by a newer entry for the same product, so replaying the log from any version
+ * still converges to the current catalog.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProductChangeFeedService {
+
+    private static final String INSERT_SQL = "insert into product_change "
+            + "(product_id, change_type, name, description, price, available_stock, changed_at) "
+            + "values (?, ?, ?, ?, ?, ?, ?)";
+
+    private final ProductChangeRepository productChangeRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Value("${product.change-feed.settle-window:5s}")
+    private Duration settleWindow;
+
+    @Value("${product.change-feed.retention:7d}")
+    private Duration retention;
+
+    @Value("${product.change-feed.compaction-batch-size:1000}")
+    private int compactionBatchSize;
+
+    public void record(Product product, ProductChange.ChangeType changeType) {
+        recordAll(List.of(product), changeType);
+    }
+
+    public void recordAll(List<Product> products, ProductChange.ChangeType changeType) {
+        if (products.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(products.size());
+        for (Product product : products) {
+            rows.add(new Object[]{product.getId(), changeType.name(), product.getName(),
+                    product.getDescription(), product.getPrice(), product.getAvailableStock()});
+        }
+        append(rows);
+    }
+
+    public void recordDeleted(Integer productId) {
+        List<Object[]> rows = new ArrayList<>(1);
+        rows.add(new Object[]{productId, ProductChange.ChangeType.DELETED.name(), null, null, null, null});
+        append(rows);
+    }
+
+    @Transactional(readOnly = true)
+    public ProductChangesDTO getChanges(long since, int limit) {
+        if (since < 0 || limit < 1 || limit > 1000) {
+            throw new ValidationException("Since must be >= 0 and limit between 1 and 1000");
+        }
+        List<ProductChange> page = productChangeRepository.findByVersionGreaterThanOrderByVersionAsc(
+                since, Limit.of(limit + 1));
+        LocalDateTime settled = LocalDateTime.now().minus(settleWindow);
+
+        List<ProductChange> changes = new ArrayList<>();
+        long previous = since;
+        boolean hasMore = page.size() > limit;
+        for (ProductChange change : page.subList(0, Math.min(limit, page.size()))) {
+            if (change.getVersion() != previous + 1 && change.getChangedAt().isAfter(settled)) {
+                hasMore = true;
+                break;
+            }
+            changes.add(change);
+            previous = change.getVersion();
+        }
+        return ProductChangesDTO.builder()
+                .changes(changes)
+                .nextSince(previous)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * One page of the catalog, ordered by id, plus the version to resume the change feed from.
+     * The first page picks the version; later pages pass it back along with the last id seen.
+     * Products written after that version are replayed by the feed, whichever page they were
+     * read on, which is harmless because every entry carries the complete product state.
+     */
+    @Transactional(readOnly = true)
+    public ProductSnapshotDTO getSnapshot(Long version, int afterId, int limit) {
+        if (afterId < 0 || limit < 1 || limit > 1000) {
+            throw new ValidationException("AfterId must be >= 0 and limit between 1 and 1000");
+        }
+        long resumeFrom = version != null ? version
+                : productChangeRepository.findLatestVersionChangedBefore(LocalDateTime.now().minus(settleWindow));
+        List<Product> page = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit + 1));
+        List<Product> products = page.subList(0, Math.min(limit, page.size()));
+        return ProductSnapshotDTO.builder()
+                .version(resumeFrom)
+                .products(products)
+                .nextAfterId(products.isEmpty() ? afterId : products.get(products.size() - 1).getId())
+                .hasMore(page.size() > limit)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${product.change-feed.compaction-interval-ms:3600000}")
+    public void compact() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        long removed = 0;
+        List<Long> versions;
+        do {
+            versions = productChangeRepository.findSupersededVersions(cutoff, Limit.of(compactionBatchSize));
+            if (!versions.isEmpty()) {
+                productChangeRepository.deleteAllByIdInBatch(versions);
+                removed += versions.size();
+            }
+        } while (versions.size() == compactionBatchSize);
+        if (removed > 0) {
+            log.info("Compacted {} superseded product change entries older than {}", removed, cutoff);
+        }
+    }
+
+    // Buffers the rows in the current transaction and inserts them before it commits
+    @SuppressWarnings("unchecked")
+    private void append(List<Object[]> rows) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(rows);
+            return;
+        }
+        List<Object[]> pending = (List<Object[]>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            pending.addAll(rows);
+            return;
+        }
+        List<Object[]> buffer = new ArrayList<>(rows);
+        TransactionSynchronizationManager.bindResource(this, buffer);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (TransactionSynchronizationManager.getResource(entityManagerFactory) instanceof EntityManagerHolder holder) {
+                    holder.getEntityManager().flush();
+                }
+                insert(buffer);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ProductChangeFeedService.this);
+            }
+        });
+    }
+
+    private void insert(List<Object[]> rows) {
+        LocalDateTime changedAt = LocalDateTime.now();
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, row) -> {
+            for (int i = 0; i < row.length; i++) {
+                StatementCreatorUtils.setParameterValue(ps, i + 1, SqlTypeValue.TYPE_UNKNOWN, row[i]);
+            }
+            ps.setObject(row.length + 1, changedAt);
+        });
+    }
+}
@@ -0,0 +1,369 @@
+package com.peerislands.ecommerce.service;
+
+import com.peerislands.ecommerce.cache.GatewayCacheInvalidator;
+import com.peerislands.ecommerce.cache.ProductCache;
+import com.peerislands.ecommerce.dto.ProductImportReportDTO;
+import com.peerislands.ecommerce.entity.Product;
+import com.peerislands.ecommerce.entity.ProductChange;
+import com.peerislands.ecommerce.exception.ValidationException;
+import com.peerislands.ecommerce.inventory.HotStockLedger;
+import com.peerislands.ecommerce.search.ProductSearchIndex;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk CSV import and export of the product catalog.
+ * <p>
+ * Imports are parsed record by record and written in JDBC batches of
+ * {@code product.csv.batch-size} rows, one transaction per batch, so memory use does not
+ * grow with the file. Rows with an {@code id} update that product, rows without one are
+ * inserted. Exports stream rows from a forward-only result set straight to the response.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProductCsvService {
+
+    static final String[] HEADERS = {"id", "name", "description", "price", "availableStock"};
+
+    private static final String INSERT_SQL =
+            "insert into product (name, description, price, available_stock) values (?, ?, ?, ?)";
+    private static final String UPDATE_SQL =
+            "update product set name = ?, description = ?, price = ?, available_stock = ? where id = ?";
+    private static final String EXPORT_SQL =
+            "select id, name, description, price, available_stock from product order by id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ProductService productService;
+    private final ProductCache productCache;
+    private final ProductSearchIndex productSearchIndex;
+    private final HotStockLedger hotStockLedger;
+    private final ProductChangeFeedService productChangeFeedService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final GatewayCacheInvalidator gatewayCacheInvalidator;
+
+    @Value("${product.csv.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${product.csv.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    // Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the result set
+    @Value("${product.csv.export-fetch-size:-2147483648}")
+    private int exportFetchSize;
+
+    public ProductImportReportDTO importProducts(InputStream csv) {
+        ImportProgress progress = new ImportProgress();
+        List<CsvRow> chunk = new ArrayList<>(batchSize);
+        try (Reader reader = new InputStreamReader(csv, StandardCharsets.UTF_8);
+             CSVParser parser = CSVFormat.DEFAULT.builder()
+                     .setHeader()
+                     .setSkipHeaderRecord(true)
+                     .setTrim(true)
+                     .setIgnoreEmptyLines(true)
+                     .get()
+                     .parse(reader)) {
+            requireHeaders(parser.getHeaderMap());
+            for (CSVRecord record : parser) {
+                progress.rowsRead++;
+                long line = parser.getCurrentLineNumber();
+                try {
+                    chunk.add(new CsvRow(line, parseRow(record)));
+                } catch (ValidationException e) {
+                    progress.fail(line, e.getMessage());
+                }
+                if (chunk.size() >= batchSize) {
+                    writeChunk(chunk, progress);
+                    chunk.clear();
+                }
+            }
+            writeChunk(chunk, progress);
+        } catch (IOException | UncheckedIOException e) {
+            throw new ValidationException("Malformed CSV after line " + progress.rowsRead + ": " + e.getMessage());
+        }
+        return progress.toReport();
+    }
+
+    public void exportProducts(OutputStream out) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            CSVPrinter printer = CSVFormat.DEFAULT.builder().setHeader(HEADERS).get().print(writer);
+            readOnlyTransactionTemplate().executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(EXPORT_SQL);
+                statement.setFetchSize(exportFetchSize);
+                return statement;
+            }, rs -> {
+                try {
+                    printer.printRecord(rs.getInt(1), rs.getString(2), rs.getString(3),
+                            rs.getBigDecimal(4).toPlainString(), rs.getInt(5));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            printer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write product export", e);
+        }
+    }
+
+    // Plain JDBC writes bypass Hibernate, which would otherwise keep serving the old rows and listings
+    private void evictSecondLevelCache(List<CsvRow> updates) {
+        updates.forEach(row -> entityManagerFactory.getCache().evict(Product.class, row.product().getId()));
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+    }
+
+    private TransactionTemplate readOnlyTransactionTemplate() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly;
+    }
+
+    private void requireHeaders(Map<String, Integer> headerMap) {
+        for (String required : List.of("name", "price", "availableStock")) {
+            if (headerMap == null || !headerMap.containsKey(required)) {
+                throw new ValidationException("CSV header must include columns " + String.join(",", HEADERS)
+                        + " (id and description optional)");
+            }
+        }
+    }
+
+    private Product parseRow(CSVRecord record) {
+        Product product = Product.builder()
+                .id(parseInteger(record, "id"))
+                .name(value(record, "name"))
+                .description(value(record, "description"))
+                .price(parseDecimal(record))
+                .availableStock(parseInteger(record, "availableStock"))
+                .build();
+        Set<ConstraintViolation<Product>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        productService.validateProduct(product);
+        return product;
+    }
+
+    private void writeChunk(List<CsvRow> chunk, ImportProgress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<CsvRow> inserts = new ArrayList<>();
+        List<CsvRow> updates = new ArrayList<>();
+        for (CsvRow row : chunk) {
+            Integer id = row.product().getId();
+            if (id == null) {
+                inserts.add(row);
+            } else if (hotStockLedger.tracks(id)) {
+                // Stock of hot products is owned by the ledger, go through the service so it becomes a delta
+                try {
+                    productService.updateProduct(id, row.product());
+                    progress.updated++;
+                } catch (RuntimeException e) {
+                    progress.fail(row.line(), e.getMessage());
+                }
+            } else {
+                updates.add(row);
+            }
+        }
+
+        try {
+            write(inserts, updates, progress);
+        } catch (DataAccessException e) {
+            // One bad row rejects its whole batch, so write the rows one by one to report each failure
+            inserts.forEach(row -> writeRow(List.of(row), List.of(), progress));
+            updates.forEach(row -> writeRow(List.of(), List.of(row), progress));
+        }
+    }
+
+    private void writeRow(List<CsvRow> inserts, List<CsvRow> updates, ImportProgress progress) {
+        try {
+            write(inserts, updates, progress);
+        } catch (DataAccessException e) {
+            String message = "Rejected by the database: " + e.getMostSpecificCause().getMessage();
+            inserts.forEach(row -> progress.fail(row.line(), message));
+            updates.forEach(row -> progress.fail(row.line(), message));
+        }
+    }
+
+    private void write(List<CsvRow> inserts, List<CsvRow> updates, ImportProgress progress) {
+        if (inserts.isEmpty() && updates.isEmpty()) {
+            return;
+        }
+        int[] updateCounts = transactionTemplate.execute(status -> {
+            insert(inserts);
+            int[] counts = update(updates);
+            productChangeFeedService.recordAll(products(inserts), ProductChange.ChangeType.CREATED);
+            List<CsvRow> updated = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    updated.add(updates.get(i));
+                }
+            }
+            productChangeFeedService.recordAll(products(updated), ProductChange.ChangeType.UPDATED);
+            return counts;
+        });
+
+        evictSecondLevelCache(updates);
+        gatewayCacheInvalidator.invalidateAll();
+        progress.inserted += inserts.size();
+        inserts.forEach(row -> productSearchIndex.index(row.product()));
+        for (int i = 0; i < updates.size(); i++) {
+            CsvRow row = updates.get(i);
+            if (updateCounts[i] == 0) {
+                progress.fail(row.line(), "Product not found with id: " + row.product().getId());
+            } else {
+                progress.updated++;
+                // Put rather than evict, so the next read is not filled from a possibly lagging replica
+                productCache.put(row.product());
+                productSearchIndex.index(row.product());
+            }
+        }
+    }
+
+    private void insert(List<CsvRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        bind(ps, rows.get(i).product());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < rows.size() && i < keys.size(); i++) {
+            rows.get(i).product().setId(((Number) keys.get(i).values().iterator().next()).intValue());
+        }
+    }
+
+    private int[] update(List<CsvRow> rows) {
+        if (rows.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Product product = rows.get(i).product();
+                bind(ps, product);
+                ps.setInt(5, product.getId());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    private static List<Product> products(List<CsvRow> rows) {
+        return rows.stream().map(CsvRow::product).toList();
+    }
+
+    private static void bind(PreparedStatement ps, Product product) throws SQLException {
+        ps.setString(1, product.getName());
+        ps.setString(2, product.getDescription());
+        ps.setBigDecimal(3, product.getPrice());
+        ps.setInt(4, product.getAvailableStock());
+    }
+
+    private static String value(CSVRecord record, String column) {
+        if (!record.isMapped(column) || !record.isSet(column)) {
+            return null;
+        }
+        String value = record.get(column);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Integer parseInteger(CSVRecord record, String column) {
+        String value = value(record, column);
+        try {
+            return value == null ? null : Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Invalid integer in column " + column + ": " + value);
+        }
+    }
+
+    private static BigDecimal parseDecimal(CSVRecord record) {
+        String value = value(record, "price");
+        try {
+            return value == null ? null : new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Invalid decimal in column price: " + value);
+        }
+    }
+
+    private record CsvRow(long line, Product product) {
+    }
+
+    private class ImportProgress {
+        private long rowsRead;
+        private long inserted;
+        private long updated;
+        private long failed;
+        private final List<ProductImportReportDTO.RowError> errors = new ArrayList<>();
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ProductImportReportDTO.RowError(line, message));
+            }
+        }
+
+        private ProductImportReportDTO toReport() {
+            return ProductImportReportDTO.builder()
+                    .rowsRead(rowsRead)
+                    .inserted(inserted)
+                    .updated(updated)
+                    .failed(failed)
+                    .errors(errors)
+                    .errorsTruncated(failed > errors.size())
+                    .build();
+        }
+    }
+}
@@ -1,12 +1,24 @@
 package com.peerislands.ecommerce.service;
 
+import com.peerislands.ecommerce.cache.GatewayCacheInvalidator;
+import com.peerislands.ecommerce.cache.ProductCache;
+import com.peerislands.ecommerce.datasource.ReplicaRoutingDataSource;
 import com.peerislands.ecommerce.dto.CartDTO;
 import com.peerislands.ecommerce.dto.CartItemDTO;
+import com.peerislands.ecommerce.dto.ProductBatchDTO;
+import com.peerislands.ecommerce.dto.ProductSearchResultDTO;
+import com.peerislands.ecommerce.dto.ProductSummaryDTO;
+import com.peerislands.ecommerce.dto.StockHoldDTO;
 import com.peerislands.ecommerce.dto.StockUpdateDTO;
 import com.peerislands.ecommerce.entity.Product;
+import com.peerislands.ecommerce.entity.ProductChange;
+import com.peerislands.ecommerce.entity.ProductStockHold;
 import com.peerislands.ecommerce.exception.ResourceNotFoundException;
 import com.peerislands.ecommerce.exception.ValidationException;
+import com.peerislands.ecommerce.inventory.HotStockLedger;
+import com.peerislands.ecommerce.inventory.StockHoldRegistry;
 import com.peerislands.ecommerce.repository.ProductRepository;
+import com.peerislands.ecommerce.search.ProductSearchIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,7 +26,17 @@ import org.springframework.web.client.RestTemplate;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static com.peerislands.ecommerce.support.TransactionCallbacks.afterCommit;
+import static com.peerislands.ecommerce.support.TransactionCallbacks.onRollback;
 
 @Service
 @RequiredArgsConstructor
@@ -22,23 +44,104 @@ public class ProductService {
 
     private final ProductRepository productRepository;
     private final RestTemplate restTemplate;
+    private final ProductCache productCache;
+    private final HotStockLedger hotStockLedger;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductChangeFeedService productChangeFeedService;
+    private final StockHoldRegistry stockHoldRegistry;
+    private final GatewayCacheInvalidator gatewayCacheInvalidator;
 
     @Value("${cart.service.url}")
     private String cartServiceUrl;
 
+    @Value("${product.batch.max-ids:1000}")
+    private int batchMaxIds;
+
+    // Bounds the IN list of a single query
+    @Value("${product.batch.query-chunk-size:500}")
+    private int batchQueryChunkSize;
+
+    @Transactional(readOnly = true)
     public List<Product> getAllProducts() {
-        return productRepository.findAll();
+        return productRepository.findCatalog();
     }
 
     public Product getProductById(Integer id) {
-        return productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
+        Product product = productCache.getProduct(id, this::loadProduct);
+        // The cached entity carries persisted stock, which trails the ledger of a hot product
+        return hotStockLedger.tracks(id) ? withLedgerStock(product) : product;
+    }
+
+    /**
+     * Looks up many products at once. Cached products are served from memory and the rest are
+     * loaded with IN queries of at most {@code product.batch.query-chunk-size} ids.
+     */
+    public ProductBatchDTO<Product> getProductsByIds(List<Integer> ids) {
+        return lookupBatch(ids, Function.identity());
+    }
+
+    public ProductBatchDTO<ProductSummaryDTO> getProductSummariesByIds(List<Integer> ids) {
+        return lookupBatch(ids, product -> ProductSummaryDTO.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .price(product.getPrice())
+                .build());
+    }
+
+    private <T> ProductBatchDTO<T> lookupBatch(List<Integer> ids, Function<Product, T> mapper) {
+        if (ids == null || ids.isEmpty() || ids.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException("At least one product id is required and ids cannot be empty");
+        }
+        List<Integer> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (uniqueIds.size() > batchMaxIds) {
+            throw new ValidationException("At most " + batchMaxIds + " product ids can be requested at once");
+        }
+
+        Map<Integer, Product> found = new HashMap<>(productCache.getAllPresentProducts(uniqueIds));
+        List<Integer> misses = uniqueIds.stream().filter(id -> !found.containsKey(id)).toList();
+        for (int from = 0; from < misses.size(); from += batchQueryChunkSize) {
+            List<Integer> chunk = misses.subList(from, Math.min(from + batchQueryChunkSize, misses.size()));
+            for (Product product : productRepository.findByIdIn(chunk)) {
+                productCache.put(product);
+                found.put(product.getId(), product);
+            }
+        }
+
+        List<T> products = new ArrayList<>(found.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : uniqueIds) {
+            Product product = found.get(id);
+            if (product == null) {
+                missingIds.add(id);
+            } else {
+                products.add(mapper.apply(product));
+            }
+        }
+        return ProductBatchDTO.<T>builder()
+                .products(products)
+                .missingIds(missingIds)
+                .build();
+    }
+
+    public ProductSearchResultDTO searchProducts(String query, BigDecimal minPrice, BigDecimal maxPrice,
+                                                 boolean inStockOnly, int page, int size) {
+        if (page < 0 || size < 1 || size > 100) {
+            throw new ValidationException("Page must be >= 0 and size between 1 and 100");
+        }
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new ValidationException("Minimum price cannot exceed maximum price");
+        }
+        return productSearchIndex.search(query, minPrice, maxPrice, inStockOnly, page, size);
     }
 
     @Transactional
     public Product createProduct(Product product) {
         validateProduct(product);
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        productChangeFeedService.record(saved, ProductChange.ChangeType.CREATED);
+        afterCommit(() -> productSearchIndex.index(saved));
+        gatewayCacheInvalidator.invalidateAll();
+        return saved;
     }
 
     @Transactional
@@ -50,9 +153,28 @@ public class ProductService {
         product.setName(productDetails.getName());
         product.setDescription(productDetails.getDescription());
         product.setPrice(productDetails.getPrice());
-        product.setAvailableStock(productDetails.getAvailableStock());
+        boolean ledgerOwnsStock = hotStockLedger.tracks(id);
+        Integer stock = productDetails.getAvailableStock();
+        if (ledgerOwnsStock) {
+            // Persisted by the ledger as a delta, writing the absolute value here would be double counted
+            afterCommit(() -> hotStockLedger.add(id, stock - hotStockLedger.available(id)));
+        } else {
+            product.setAvailableStock(stock);
+        }
         
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        Product result = ledgerOwnsStock ? withStock(saved, stock) : saved;
+        productChangeFeedService.record(result, ProductChange.ChangeType.UPDATED);
+        afterCommit(() -> {
+            if (ledgerOwnsStock) {
+                productCache.evict(id);
+            } else {
+                productCache.put(saved);
+            }
+            productSearchIndex.index(result);
+        });
+        gatewayCacheInvalidator.invalidateAll();
+        return result;
     }
 
     @Transactional
@@ -61,20 +183,24 @@ public class ProductService {
             throw new ResourceNotFoundException("Product not found with id: " + id);
         }
         productRepository.deleteById(id);
+        productChangeFeedService.recordDeleted(id);
+        stockHoldRegistry.releaseAll(id);
+        afterCommit(() -> {
+            productCache.evict(id);
+            hotStockLedger.untrack(id);
+            productSearchIndex.remove(id);
+        });
+        gatewayCacheInvalidator.invalidateAll();
     }
 
     @Transactional
     public Product updateStock(Integer id, Integer quantity) {
-        Product product = productRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
-        
-        int newStock = product.getAvailableStock() + quantity;
-        if (newStock < 0) {
-            throw new ValidationException("Insufficient stock for product: " + id);
+        if (quantity >= 0) {
+            increaseStock(id, quantity);
+        } else {
+            decreaseStock(id, -quantity, null, "Insufficient stock for product: " + id);
         }
-        
-        product.setAvailableStock(newStock);
-        return productRepository.save(product);
+        return refreshCachedProduct(id);
     }
 
     @Transactional
@@ -82,7 +208,7 @@ public class ProductService {
         Product product = getProductById(productId);
         
         // Validate stock availability
-        if (product.getAvailableStock() < quantity) {
+        if (getStockQuantity(productId) < quantity) {
             throw new ValidationException("Insufficient stock available for product: " + productId);
         }
 
@@ -99,7 +225,7 @@ public class ProductService {
         restTemplate.postForObject(url, cartItem, CartDTO.class);
     }
 
-    private void validateProduct(Product product) {
+    void validateProduct(Product product) {
         if (product.getPrice() != null && product.getPrice().compareTo(BigDecimal.ZERO) <= 0) {
             throw new ValidationException("Price must be greater than zero");
         }
@@ -109,32 +235,139 @@ public class ProductService {
     }
 
     public int getStockQuantity(Integer id) {
-        Product product = getProductById(id);
-        return product.getAvailableStock();
+        return getStockQuantity(id, null);
+    }
+
+    /**
+     * On-hand stock minus the units held by carts, not counting the hold of {@code holderId}.
+     */
+    public int getStockQuantity(Integer id, String holderId) {
+        return Math.max(onHandStock(id) - stockHoldRegistry.heldByOthers(id, holderId), 0);
     }
 
     @Transactional
-    public Product updateProductStock(Integer productId, StockUpdateDTO stockUpdateDTO) {
-        Product product = productRepository.findById(productId)
+    public StockHoldDTO placeStockHold(Integer productId, String holderId, Integer quantity, Long ttlSeconds) {
+        if (holderId == null || holderId.isBlank()) {
+            throw new ValidationException("Holder id is required");
+        }
+        if (quantity == null || quantity <= 0) {
+            throw new ValidationException("Hold quantity must be greater than zero");
+        }
+        // The row lock serializes the hold with other holds and stock decrements of the product
+        int onHand = productRepository.lockStock(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + productId));
+        if (hotStockLedger.tracks(productId)) {
+            onHand = hotStockLedger.available(productId);
+        }
+        ProductStockHold hold = stockHoldRegistry.place(productId, holderId, quantity,
+                ttlSeconds == null ? null : Duration.ofSeconds(ttlSeconds), onHand);
+        return StockHoldDTO.builder()
+                .productId(hold.getProductId())
+                .holderId(hold.getHolderId())
+                .quantity(hold.getQuantity())
+                .expiresAt(hold.getExpiresAt())
+                .build();
+    }
+
+    public void releaseStockHold(Integer productId, String holderId) {
+        stockHoldRegistry.release(productId, holderId);
+    }
+
+    private int onHandStock(Integer id) {
+        if (hotStockLedger.tracks(id)) {
+            return hotStockLedger.available(id);
+        }
+        return productCache.getStock(id, productId -> loadProduct(productId).getAvailableStock());
+    }
+
+    @Transactional
+    public Product updateProductStock(Integer productId, StockUpdateDTO stockUpdateDTO) {
         if (stockUpdateDTO.getQuantity() == null || stockUpdateDTO.getQuantity() < 0) {
             throw new ValidationException("Invalid stock quantity provided");
         }
 
-        if (stockUpdateDTO.getOperation().equals("DECREASE")){
-            if (product.getAvailableStock() < stockUpdateDTO.getQuantity()) {
-                throw new ValidationException("Insufficient stock to decrease by " + stockUpdateDTO.getQuantity());
+        if ("DECREASE".equals(stockUpdateDTO.getOperation())) {
+            decreaseStock(productId, stockUpdateDTO.getQuantity(), stockUpdateDTO.getHolderId(),
+                    "Insufficient stock to decrease by " + stockUpdateDTO.getQuantity());
+            // Deleted in this transaction, so the hold stays in place if the decrease rolls back
+            if (stockUpdateDTO.getHolderId() != null) {
+                stockHoldRegistry.release(productId, stockUpdateDTO.getHolderId());
             }
-            int newStock = product.getAvailableStock() - stockUpdateDTO.getQuantity();
-            product.setAvailableStock(newStock);
         }
-        else if (!stockUpdateDTO.getOperation().equals("INCREASE")) {
+        else if (!"INCREASE".equals(stockUpdateDTO.getOperation())) {
             throw new ValidationException("Invalid operation: " + stockUpdateDTO.getOperation());
         }
         else {
-            int newStock = product.getAvailableStock() + stockUpdateDTO.getQuantity();
-            product.setAvailableStock(newStock);
+            increaseStock(productId, stockUpdateDTO.getQuantity());
+        }
+        return refreshCachedProduct(productId);
+    }
+
+    private void increaseStock(Integer id, int quantity) {
+        if (hotStockLedger.tracks(id)) {
+            hotStockLedger.add(id, quantity);
+            onRollback(() -> hotStockLedger.add(id, -quantity));
+            return;
+        }
+        if (productRepository.incrementStock(id, quantity) == 0) {
+            throw new ResourceNotFoundException("Product not found with id: " + id);
+        }
+    }
+
+    private void decreaseStock(Integer id, int quantity, String holderId, String insufficientMessage) {
+        if (hotStockLedger.tracks(id)) {
+            if (!hotStockLedger.tryReserve(id, quantity)) {
+                throw new ValidationException(insufficientMessage);
+            }
+            // Checked after reserving, so of two concurrent reservations the later one sees both
+            if (hotStockLedger.available(id) < stockHoldRegistry.heldByOthers(id, holderId)) {
+                hotStockLedger.add(id, quantity);
+                throw new ValidationException(insufficientMessage);
+            }
+            onRollback(() -> hotStockLedger.add(id, quantity));
+            return;
+        }
+        // Units held by other carts are part of the update's condition, under the same row lock as new holds
+        if (productRepository.decrementStock(id, quantity, holderId) == 0) {
+            if (!productRepository.existsById(id)) {
+                throw new ResourceNotFoundException("Product not found with id: " + id);
+            }
+            throw new ValidationException(insufficientMessage);
+        }
+    }
+
+    private Product refreshCachedProduct(Integer id) {
+        Product product;
+        if (hotStockLedger.tracks(id)) {
+            product = getProductById(id);
+        } else {
+            product = loadProduct(id);
+            afterCommit(() -> productCache.put(product));
+            // Hot products are recorded when the ledger persists them, not on every reservation
+            productChangeFeedService.record(product, ProductChange.ChangeType.STOCK_CHANGED);
         }
-        return productRepository.save(product);
+        afterCommit(() -> productSearchIndex.index(product));
+        gatewayCacheInvalidator.invalidateProduct(id);
+        return product;
+    }
+
+    private Product withLedgerStock(Product product) {
+        return withStock(product, hotStockLedger.available(product.getId()));
+    }
+
+    private static Product withStock(Product product, Integer availableStock) {
+        return Product.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .availableStock(availableStock)
+                .build();
+    }
+
+    // Cached products and stock must not be older than the cache promises, so skip the lagging replica
+    private Product loadProduct(Integer id) {
+        return ReplicaRoutingDataSource.onPrimary(() -> productRepository.findById(id))
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
     }
 }
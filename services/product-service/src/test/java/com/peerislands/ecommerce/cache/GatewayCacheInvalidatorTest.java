@@ -0,0 +1,82 @@
+package com.peerislands.ecommerce.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpEntity;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GatewayCacheInvalidatorTest {
+
+    @Mock
+    private DiscoveryClient discoveryClient;
+
+    @Mock
+    private RestTemplate restTemplate;
+
+    private GatewayCacheInvalidator invalidator;
+
+    @BeforeEach
+    void setUp() {
+        invalidator = new GatewayCacheInvalidator(discoveryClient, restTemplate, "API-GATEWAY", "product-service", "secret");
+    }
+
+    @Test
+    void flush_ShouldSendQueuedPathsToEveryGateway() {
+        when(discoveryClient.getInstances("API-GATEWAY")).thenReturn(List.of(
+                new DefaultServiceInstance("gw-1", "API-GATEWAY", "gw1", 8088, false),
+                new DefaultServiceInstance("gw-2", "API-GATEWAY", "gw2", 8088, false)));
+        when(restTemplate.postForEntity(eq("http://gw1:8088/internal/cache/invalidations"), any(), eq(Void.class)))
+                .thenThrow(new ResourceAccessException("down"));
+
+        invalidator.invalidateProduct(7);
+        invalidator.invalidateProduct(7);
+        invalidator.flush();
+        invalidator.flush();
+
+        ArgumentCaptor<HttpEntity<GatewayCacheInvalidator.InvalidationRequest>> request = ArgumentCaptor.captor();
+        verify(restTemplate).postForEntity(eq("http://gw2:8088/internal/cache/invalidations"), request.capture(), eq(Void.class));
+        assertEquals(List.of("/api/products/7"), request.getValue().getBody().pathPrefixes());
+        assertEquals(List.of("/api/products", "/api/products/search"), request.getValue().getBody().paths());
+        assertEquals("secret", request.getValue().getHeaders().getFirst(GatewayCacheInvalidator.TOKEN_HEADER));
+        verify(restTemplate, times(2)).postForEntity(any(String.class), any(), eq(Void.class));
+    }
+
+    @Test
+    void invalidateAll_InTransaction_ShouldWaitForCommit() {
+        when(discoveryClient.getInstances("API-GATEWAY")).thenReturn(List.of(
+                new DefaultServiceInstance("gw-1", "API-GATEWAY", "gw1", 8088, false)));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            invalidator.invalidateAll();
+            invalidator.flush();
+            verifyNoInteractions(restTemplate);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        invalidator.flush();
+
+        ArgumentCaptor<HttpEntity<GatewayCacheInvalidator.InvalidationRequest>> request = ArgumentCaptor.captor();
+        verify(restTemplate).postForEntity(any(String.class), request.capture(), eq(Void.class));
+        assertEquals(List.of(), request.getValue().getBody().pathPrefixes());
+        assertEquals(List.of(), request.getValue().getBody().paths());
+    }
+}
@@ -0,0 +1,76 @@
+package com.peerislands.ecommerce.inventory;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class InventoryOwnerLockTest {
+
+    @Test
+    void acquire_FailsWhenAnotherInstanceHoldsTheLock() throws Exception {
+        Connection connection = connectionReturning(0);
+        InventoryOwnerLock lock = new InventoryOwnerLock(dataSource(connection), "inventory", Duration.ofSeconds(1));
+
+        assertThrows(IllegalStateException.class, lock::acquire);
+        verify(connection).close();
+    }
+
+    @Test
+    void acquire_KeepsTheConnectionUntilReleased() throws Exception {
+        Connection connection = connectionReturning(1);
+        InventoryOwnerLock lock = new InventoryOwnerLock(dataSource(connection), "inventory", Duration.ofSeconds(1));
+
+        lock.acquire();
+        verify(connection, never()).close();
+
+        lock.release();
+        verify(connection).prepareStatement("SELECT RELEASE_LOCK(?)");
+        verify(connection).close();
+    }
+
+    @Test
+    void verify_FencesWhenAnotherInstanceTookTheLock() throws Exception {
+        Connection connection = connectionReturning(1);
+        InventoryOwnerLock lock = new InventoryOwnerLock(dataSource(connection), "inventory", Duration.ofSeconds(1));
+        lock.acquire();
+        assertEquals(Status.UP, lock.health().getStatus());
+
+        // IS_USED_LOCK no longer reports this connection, and GET_LOCK fails
+        ResultSet lost = mock(ResultSet.class);
+        when(lost.next()).thenReturn(true);
+        when(lost.getInt(1)).thenReturn(0);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(lost);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        lock.verify();
+
+        assertTrue(lock.isFenced());
+        assertEquals(Status.DOWN, lock.health().getStatus());
+    }
+
+    private DataSource dataSource(Connection connection) throws Exception {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+
+    private Connection connectionReturning(int lockResult) throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt(1)).thenReturn(lockResult);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        return connection;
+    }
+}
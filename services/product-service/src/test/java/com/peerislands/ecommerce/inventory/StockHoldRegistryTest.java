@@ -0,0 +1,125 @@
+package com.peerislands.ecommerce.inventory;
+
+import com.peerislands.ecommerce.entity.Product;
+import com.peerislands.ecommerce.exception.InsufficientStockException;
+import com.peerislands.ecommerce.exception.ValidationException;
+import com.peerislands.ecommerce.repository.ProductRepository;
+import com.peerislands.ecommerce.repository.ProductStockHoldRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false"
+})
+@Import(StockHoldRegistry.class)
+// Each step commits on its own, as in the service, so holds are visible to the next statement
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockHoldRegistryTest {
+
+    @Autowired
+    private StockHoldRegistry registry;
+
+    @Autowired
+    private ProductStockHoldRepository holdRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        holdRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void expireUntil_ReleasesOnlyLapsedHolds() {
+        registry.place(1, "a", 2, Duration.ofMinutes(1), 10);
+        registry.place(1, "b", 3, Duration.ofMinutes(10), 10);
+        registry.place(2, "a", 4, Duration.ofMinutes(2), 10);
+
+        assertEquals(2, registry.expireUntil(Instant.now().plus(Duration.ofMinutes(5))));
+        assertEquals(3, registry.held(1));
+        assertEquals(0, registry.held(2));
+        assertEquals(3, registry.heldByOthers(1, "a"));
+    }
+
+    @Test
+    void place_ExtendingHoldRestartsExpiry() {
+        registry.place(1, "a", 2, Duration.ofMinutes(1), 10);
+        registry.place(1, "a", 5, Duration.ofMinutes(30), 10);
+
+        assertEquals(0, registry.expireUntil(Instant.now().plus(Duration.ofMinutes(5))));
+        assertEquals(5, registry.held(1));
+        assertEquals(1, holdRepository.count());
+    }
+
+    @Test
+    void place_RejectsHoldBeyondUnheldStock() {
+        registry.place(1, "a", 7, null, 10);
+        assertThrows(InsufficientStockException.class, () -> registry.place(1, "b", 4, null, 10));
+        assertThrows(ValidationException.class, () -> registry.place(1, "b", 1, Duration.ofHours(2), 10));
+        assertEquals(3, registry.place(1, "b", 3, null, 10).getQuantity());
+    }
+
+    @Test
+    void release_ReturnsHeldUnits() {
+        registry.place(1, "a", 7, null, 10);
+        assertEquals(7, registry.release(1, "a"));
+        assertEquals(0, registry.release(1, "a"));
+        assertEquals(0, registry.held(1));
+    }
+
+    @Test
+    void releaseAll_DropsOnlyTheProductsHolds() {
+        registry.place(1, "a", 2, Duration.ofMinutes(1), 10);
+        registry.place(1, "b", 3, Duration.ofMinutes(10), 10);
+        registry.place(2, "a", 4, Duration.ofMinutes(2), 10);
+
+        registry.releaseAll(1);
+
+        assertEquals(0, registry.held(1));
+        assertEquals(4, registry.held(2));
+        assertEquals(1, registry.expireUntil(Instant.now().plus(Duration.ofHours(1))));
+    }
+
+    @Test
+    void decrementStock_SetsAsideOtherHoldersUnits() {
+        Integer productId = productRepository.save(Product.builder()
+                .name("Held")
+                .price(BigDecimal.TEN)
+                .availableStock(10)
+                .build()).getId();
+        transactionTemplate.executeWithoutResult(status -> registry.place(productId, "a", 6, null,
+                productRepository.lockStock(productId).orElseThrow()));
+
+        assertEquals(0, decrement(productId, 5, "b"));
+        assertEquals(1, decrement(productId, 4, "b"));
+        assertEquals(1, decrement(productId, 6, "a"));
+
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getAvailableStock());
+    }
+
+    private int decrement(Integer productId, int quantity, String holderId) {
+        return transactionTemplate.execute(status -> productRepository.decrementStock(productId, quantity, holderId));
+    }
+}
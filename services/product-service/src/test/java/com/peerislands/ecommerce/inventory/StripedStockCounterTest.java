@@ -0,0 +1,85 @@
+package com.peerislands.ecommerce.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockCounterTest {
+
+    @Test
+    void initialStock_IsSpreadAcrossStripes() {
+        StripedStockCounter counter = new StripedStockCounter(8, 101);
+        assertEquals(101, counter.available());
+    }
+
+    @Test
+    void tryReserve_SpanningStripes_TakesFromSeveral() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+        assertTrue(counter.tryReserve(9));
+        assertEquals(1, counter.available());
+        assertFalse(counter.tryReserve(2));
+        assertEquals(1, counter.available());
+        assertEquals(-9, counter.drainPendingDelta());
+        assertEquals(0, counter.drainPendingDelta());
+    }
+
+    @Test
+    void add_NegativeQuantity_RemovesStock() {
+        StripedStockCounter counter = new StripedStockCounter(4, 10);
+        counter.add(5);
+        counter.add(-12);
+        assertEquals(3, counter.available());
+        assertEquals(-7, counter.drainPendingDelta());
+    }
+
+    @Test
+    void add_RemovingAllStock_LeavesNothingToReserve() {
+        StripedStockCounter counter = new StripedStockCounter(8, 8);
+        counter.add(-8);
+        assertEquals(0, counter.available());
+        for (int i = 0; i < 8; i++) {
+            assertFalse(counter.tryReserve(1));
+        }
+        counter.add(-3);
+        assertEquals(-8, counter.drainPendingDelta());
+    }
+
+    @Test
+    void concurrentReservations_NeverOversell() throws Exception {
+        int stock = 10_000;
+        StripedStockCounter counter = new StripedStockCounter(8, stock);
+        AtomicInteger reserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 2_000; i++) {
+                    int quantity = 1 + (i % 3);
+                    if (counter.tryReserve(quantity)) {
+                        reserved.addAndGet(quantity);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertTrue(reserved.get() <= stock);
+        assertEquals(stock - reserved.get(), counter.available());
+        assertEquals(-reserved.get(), counter.drainPendingDelta());
+    }
+}
@@ -0,0 +1,140 @@
+package com.peerislands.ecommerce.repository;
+
+import com.peerislands.ecommerce.entity.Product;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.missing_cache_strategy=create",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+// Each step commits on its own, as in the service, so the cache sees completed transactions
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductSecondLevelCacheTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Statistics statistics;
+    private Integer productId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        productRepository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+        productId = productRepository.save(Product.builder()
+                .name("Cached")
+                .price(BigDecimal.TEN)
+                .availableStock(10)
+                .build()).getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private Product load() {
+        return transactionTemplate.execute(status -> productRepository.findById(productId).orElseThrow());
+    }
+
+    private CacheRegionStatistics region() {
+        return statistics.getDomainDataRegionStatistics(Product.CACHE_REGION);
+    }
+
+    @Test
+    void repeatedLoads_AreServedFromRegion() {
+        load();
+        load();
+        load();
+
+        assertTrue(region().getHitCount() >= 2);
+        assertEquals(0, statistics.getEntityLoadCount() - region().getMissCount());
+    }
+
+    @Test
+    void conditionalStockUpdate_IsVisibleToNextLoad() {
+        assertEquals(10, load().getAvailableStock());
+
+        transactionTemplate.executeWithoutResult(status -> assertEquals(1, productRepository.decrementStock(productId, 3, null)));
+
+        assertEquals(7, load().getAvailableStock());
+        assertEquals(7, load().getAvailableStock());
+    }
+
+    @Test
+    void stockUpdate_KeepsOtherProductsCached() {
+        Integer otherId = productRepository.save(Product.builder()
+                .name("Other")
+                .price(BigDecimal.ONE)
+                .availableStock(5)
+                .build()).getId();
+        transactionTemplate.execute(status -> productRepository.findById(otherId).orElseThrow());
+        load();
+
+        transactionTemplate.executeWithoutResult(status -> assertEquals(1, productRepository.adjustStock(productId, -2)));
+        long missesBefore = region().getMissCount();
+
+        assertEquals(5, transactionTemplate.execute(status -> productRepository.findById(otherId).orElseThrow()).getAvailableStock());
+        assertEquals(missesBefore, region().getMissCount());
+        assertEquals(8, load().getAvailableStock());
+    }
+
+    @Test
+    void conditionalStockUpdate_RejectsMoreThanAvailable() {
+        transactionTemplate.executeWithoutResult(status -> assertEquals(0, productRepository.decrementStock(productId, 11, null)));
+
+        assertEquals(10, load().getAvailableStock());
+    }
+
+    @Test
+    void entityUpdate_RefreshesCachedEntry() {
+        load();
+        transactionTemplate.executeWithoutResult(status -> {
+            Product product = productRepository.findById(productId).orElseThrow();
+            product.setAvailableStock(42);
+        });
+        long missesBefore = region().getMissCount();
+
+        assertEquals(42, load().getAvailableStock());
+        assertEquals(missesBefore, region().getMissCount());
+    }
+
+    @Test
+    void catalogListing_ReadsRegionWithoutFillingIt() {
+        entityManagerFactory.getCache().evictAll();
+        productRepository.findCatalog();
+        assertEquals(0, region().getPutCount());
+
+        load();
+        assertEquals(1, region().getPutCount());
+        transactionTemplate.executeWithoutResult(status -> productRepository.incrementStock(productId, 5));
+
+        assertEquals(15, productRepository.findCatalog().get(0).getAvailableStock());
+        assertEquals(1, region().getPutCount());
+    }
+}
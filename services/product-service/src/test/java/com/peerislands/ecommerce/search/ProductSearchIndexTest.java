@@ -0,0 +1,80 @@
+package com.peerislands.ecommerce.search;
+
+import com.peerislands.ecommerce.dto.ProductSearchResultDTO;
+import com.peerislands.ecommerce.entity.Product;
+import com.peerislands.ecommerce.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        when(productRepository.findAll()).thenReturn(List.of(
+                product(1, "Steel Desk Lamp", "Adjustable lamp for the office", "45.00", 10),
+                product(2, "Oak Desk", "Solid oak desk with a drawer for a lamp", "320.00", 3),
+                product(3, "Floor Lamp", "Tall lamp", "120.00", 0),
+                product(4, "Office Chair", "Ergonomic chair", "199.99", 7)));
+        index = new ProductSearchIndex(productRepository);
+        index.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        index.close();
+    }
+
+    private Product product(int id, String name, String description, String price, int stock) {
+        return new Product(id, name, description, new BigDecimal(price), stock);
+    }
+
+    @Test
+    void search_RanksNameMatchesAboveDescriptionMatches() {
+        ProductSearchResultDTO result = index.search("lamp", null, null, false, 0, 10);
+        assertEquals(3, result.getTotalHits());
+        assertEquals(2, result.getProducts().get(2).getId());
+    }
+
+    @Test
+    void search_AppliesPriceAndStockFilters() {
+        ProductSearchResultDTO result = index.search("lamp", new BigDecimal("40"), new BigDecimal("200"), true, 0, 10);
+        assertEquals(1, result.getTotalHits());
+        Product hit = result.getProducts().get(0);
+        assertEquals(1, hit.getId());
+        assertEquals(new BigDecimal("45.00"), hit.getPrice());
+        assertEquals(2, result.getInStockCount());
+        assertEquals(1L, result.getPriceFacets().get("0-50"));
+        assertEquals(1L, result.getPriceFacets().get("100-250"));
+    }
+
+    @Test
+    void search_Paginates() {
+        ProductSearchResultDTO result = index.search(null, null, null, false, 1, 3);
+        assertEquals(4, result.getTotalHits());
+        assertEquals(1, result.getProducts().size());
+    }
+
+    @Test
+    void indexAndRemove_VisibleAfterRefresh() {
+        index.index(product(5, "Brass Lamp", null, "80.00", 2));
+        index.remove(1);
+        index.refresh();
+        List<Integer> ids = index.search("lamp", null, null, false, 0, 10).getProducts().stream()
+                .map(Product::getId)
+                .toList();
+        assertTrue(ids.contains(5));
+        assertFalse(ids.contains(1));
+        verify(productRepository, times(1)).findAll();
+    }
+}
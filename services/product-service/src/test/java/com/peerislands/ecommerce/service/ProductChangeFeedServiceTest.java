@@ -0,0 +1,165 @@
+package com.peerislands.ecommerce.service;
+
+import com.peerislands.ecommerce.dto.ProductChangesDTO;
+import com.peerislands.ecommerce.dto.ProductSnapshotDTO;
+import com.peerislands.ecommerce.entity.Product;
+import com.peerislands.ecommerce.entity.ProductChange;
+import com.peerislands.ecommerce.exception.ValidationException;
+import com.peerislands.ecommerce.repository.ProductChangeRepository;
+import com.peerislands.ecommerce.repository.ProductRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ProductChangeFeedServiceTest {
+
+    @Mock
+    private ProductChangeRepository productChangeRepository;
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @InjectMocks
+    private ProductChangeFeedService productChangeFeedService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(productChangeFeedService, "settleWindow", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(productChangeFeedService, "retention", Duration.ofDays(7));
+        ReflectionTestUtils.setField(productChangeFeedService, "compactionBatchSize", 2);
+    }
+
+    private ProductChange change(long version, LocalDateTime changedAt) {
+        return ProductChange.builder()
+                .version(version)
+                .productId(1)
+                .changeType(ProductChange.ChangeType.UPDATED)
+                .changedAt(changedAt)
+                .build();
+    }
+
+    @Test
+    void getChanges_ReturnsContiguousChangesAndNextVersion() {
+        LocalDateTime now = LocalDateTime.now();
+        when(productChangeRepository.findByVersionGreaterThanOrderByVersionAsc(10L, Limit.of(3)))
+                .thenReturn(List.of(change(11, now), change(12, now), change(13, now)));
+
+        ProductChangesDTO result = productChangeFeedService.getChanges(10, 2);
+
+        assertEquals(2, result.getChanges().size());
+        assertEquals(12, result.getNextSince());
+        assertTrue(result.isHasMore());
+    }
+
+    @Test
+    void getChanges_StopsBeforeRecentGap() {
+        LocalDateTime now = LocalDateTime.now();
+        when(productChangeRepository.findByVersionGreaterThanOrderByVersionAsc(10L, Limit.of(101)))
+                .thenReturn(List.of(change(11, now), change(13, now)));
+
+        ProductChangesDTO result = productChangeFeedService.getChanges(10, 100);
+
+        assertEquals(1, result.getChanges().size());
+        assertEquals(11, result.getNextSince());
+        assertTrue(result.isHasMore());
+    }
+
+    @Test
+    void getChanges_SkipsSettledGaps() {
+        LocalDateTime old = LocalDateTime.now().minusMinutes(1);
+        when(productChangeRepository.findByVersionGreaterThanOrderByVersionAsc(0L, Limit.of(101)))
+                .thenReturn(List.of(change(4, old), change(9, old)));
+
+        ProductChangesDTO result = productChangeFeedService.getChanges(0, 100);
+
+        assertEquals(2, result.getChanges().size());
+        assertEquals(9, result.getNextSince());
+        assertFalse(result.isHasMore());
+    }
+
+    @Test
+    void getChanges_InvalidLimit() {
+        assertThrows(ValidationException.class, () -> productChangeFeedService.getChanges(0, 5000));
+    }
+
+    @Test
+    void recordAll_InTransaction_InsertsBeforeCommit() {
+        Product product = Product.builder().id(1).name("Lamp").price(BigDecimal.TEN).availableStock(3).build();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            productChangeFeedService.record(product, ProductChange.ChangeType.UPDATED);
+            productChangeFeedService.recordDeleted(2);
+            verifyNoInteractions(jdbcTemplate);
+
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> rows) -> rows.size() == 2),
+                    eq(2), any());
+        } finally {
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertNull(TransactionSynchronizationManager.getResource(productChangeFeedService));
+    }
+
+    @Test
+    void getSnapshot_PagesByIdAndKeepsVersion() {
+        when(productChangeRepository.findLatestVersionChangedBefore(any(LocalDateTime.class))).thenReturn(40L);
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(0, Limit.of(3))).thenReturn(List.of(
+                Product.builder().id(1).build(), Product.builder().id(4).build(), Product.builder().id(7).build()));
+        when(productRepository.findByIdGreaterThanOrderByIdAsc(4, Limit.of(3))).thenReturn(List.of(
+                Product.builder().id(7).build()));
+
+        ProductSnapshotDTO first = productChangeFeedService.getSnapshot(null, 0, 2);
+        ProductSnapshotDTO second = productChangeFeedService.getSnapshot(first.getVersion(), first.getNextAfterId(), 2);
+
+        assertEquals(40, first.getVersion());
+        assertEquals(2, first.getProducts().size());
+        assertEquals(4, first.getNextAfterId());
+        assertTrue(first.isHasMore());
+        assertEquals(40, second.getVersion());
+        assertEquals(7, second.getNextAfterId());
+        assertFalse(second.isHasMore());
+        verify(productChangeRepository, times(1)).findLatestVersionChangedBefore(any(LocalDateTime.class));
+    }
+
+    @Test
+    void compact_DeletesSupersededEntriesInBatches() {
+        when(productChangeRepository.findSupersededVersions(any(LocalDateTime.class), eq(Limit.of(2))))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(5L));
+
+        productChangeFeedService.compact();
+
+        verify(productChangeRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(productChangeRepository).deleteAllByIdInBatch(List.of(5L));
+    }
+}
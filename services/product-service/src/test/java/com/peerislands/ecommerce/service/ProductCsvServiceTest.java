@@ -0,0 +1,171 @@
+package com.peerislands.ecommerce.service;
+
+import com.peerislands.ecommerce.cache.GatewayCacheInvalidator;
+import com.peerislands.ecommerce.cache.ProductCache;
+import com.peerislands.ecommerce.dto.ProductImportReportDTO;
+import com.peerislands.ecommerce.entity.Product;
+import com.peerislands.ecommerce.inventory.HotStockLedger;
+import com.peerislands.ecommerce.repository.ProductChangeRepository;
+import com.peerislands.ecommerce.repository.ProductRepository;
+import com.peerislands.ecommerce.search.ProductSearchIndex;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validation;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ProductCsvServiceTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ProductSearchIndex productSearchIndex;
+    private ProductCsvService productCsvService;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("create table product (id int auto_increment primary key, name varchar(255), "
+                + "description varchar(255), price decimal(10, 2), available_stock int)");
+        jdbcTemplate.execute("create table product_change (version bigint auto_increment primary key, "
+                + "product_id int not null, change_type varchar(20) not null, name varchar(255), "
+                + "description varchar(255), price decimal(10, 2), available_stock int, changed_at timestamp not null)");
+        jdbcTemplate.update("insert into product (name, description, price, available_stock) values ('Lamp', 'Old', 10.00, 1)");
+
+        ProductService productService = mock(ProductService.class);
+        doCallRealMethod().when(productService).validateProduct(any());
+        productSearchIndex = mock(ProductSearchIndex.class);
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class, RETURNS_DEEP_STUBS);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(mock(SessionFactory.class, RETURNS_DEEP_STUBS));
+        productCsvService = new ProductCsvService(
+                jdbcTemplate,
+                new TransactionTemplate(new DataSourceTransactionManager(database)),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                productService,
+                new ProductCache(100, Duration.ofMinutes(10), 100, Duration.ofSeconds(2)),
+                productSearchIndex,
+                mock(HotStockLedger.class),
+                new ProductChangeFeedService(mock(ProductChangeRepository.class), mock(ProductRepository.class),
+                        jdbcTemplate, entityManagerFactory),
+                entityManagerFactory,
+                mock(GatewayCacheInvalidator.class));
+        ReflectionTestUtils.setField(productCsvService, "batchSize", 2);
+        ReflectionTestUtils.setField(productCsvService, "maxReportedErrors", 2);
+        ReflectionTestUtils.setField(productCsvService, "exportFetchSize", 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    private ProductImportReportDTO importCsv(String csv) {
+        return productCsvService.importProducts(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void importProducts_InsertsAndUpdatesInBatches() {
+        ProductImportReportDTO report = importCsv("""
+                id,name,description,price,availableStock
+                1,Lamp,"Brass, polished",12.50,4
+                ,Desk,,99.99,2
+                ,Chair,Oak,45.00,7
+                """);
+
+        assertEquals(3, report.getRowsRead());
+        assertEquals(2, report.getInserted());
+        assertEquals(1, report.getUpdated());
+        assertEquals(0, report.getFailed());
+        assertEquals(3, jdbcTemplate.queryForObject("select count(*) from product", Integer.class));
+        assertEquals("Brass, polished", jdbcTemplate.queryForObject("select description from product where id = 1", String.class));
+        verify(productSearchIndex, times(3)).index(any(Product.class));
+        assertEquals(List.of("CREATED", "UPDATED", "CREATED"), jdbcTemplate.queryForList(
+                "select change_type from product_change order by version", String.class));
+    }
+
+    @Test
+    void importProducts_ReportsRowErrorsAndContinues() {
+        ProductImportReportDTO report = importCsv("""
+                id,name,description,price,availableStock
+                ,,,10.00,1
+                ,Desk,,0,2
+                ,Chair,,abc,1
+                42,Ghost,,5.00,1
+                ,Stool,,15.00,3
+                """);
+
+        assertEquals(5, report.getRowsRead());
+        assertEquals(1, report.getInserted());
+        assertEquals(4, report.getFailed());
+        assertEquals(2, report.getErrors().size());
+        assertTrue(report.isErrorsTruncated());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertEquals("Product name is required", report.getErrors().get(0).getMessage());
+        assertEquals("Price must be greater than zero", report.getErrors().get(1).getMessage());
+    }
+
+    @Test
+    void importProducts_RetriesRejectedBatchRowByRow() {
+        // Too long for the description column, so the database rejects the whole batch
+        String longDescription = "x".repeat(300);
+        ProductImportReportDTO report = importCsv("""
+                id,name,description,price,availableStock
+                ,Desk,%s,99.99,2
+                ,Chair,Oak,45.00,7
+                """.formatted(longDescription));
+
+        assertEquals(1, report.getInserted());
+        assertEquals(1, report.getFailed());
+        assertEquals(2, report.getErrors().get(0).getLine());
+        assertTrue(report.getErrors().get(0).getMessage().startsWith("Rejected by the database"));
+        assertEquals(List.of("Lamp", "Chair"), jdbcTemplate.queryForList("select name from product order by id", String.class));
+    }
+
+    @Test
+    void exportProducts_WritesHeaderAndRows() {
+        jdbcTemplate.update("insert into product (name, description, price, available_stock) values ('Desk, oak', null, 99.90, 3)");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        productCsvService.exportProducts(out);
+
+        assertEquals("""
+                id,name,description,price,availableStock\r
+                1,Lamp,Old,10.00,1\r
+                2,"Desk, oak",,99.90,3\r
+                """, out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void exportedCsv_CanBeImportedBack() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        productCsvService.exportProducts(out);
+
+        ProductImportReportDTO report = productCsvService.importProducts(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(1, report.getUpdated());
+        assertEquals(0, report.getFailed());
+        assertEquals(new BigDecimal("10.00"), jdbcTemplate.queryForObject("select price from product where id = 1", BigDecimal.class));
+    }
+}
@@ -1,18 +1,32 @@
 package com.peerislands.ecommerce.service;
 
+import com.peerislands.ecommerce.cache.GatewayCacheInvalidator;
+import com.peerislands.ecommerce.cache.ProductCache;
 import com.peerislands.ecommerce.dto.CartDTO;
 import com.peerislands.ecommerce.dto.CartItemDTO;
+import com.peerislands.ecommerce.dto.ProductBatchDTO;
+import com.peerislands.ecommerce.dto.ProductSummaryDTO;
 import com.peerislands.ecommerce.dto.StockUpdateDTO;
 import com.peerislands.ecommerce.entity.Product;
+import com.peerislands.ecommerce.entity.ProductChange;
+import com.peerislands.ecommerce.entity.ProductStockHold;
 import com.peerislands.ecommerce.exception.ResourceNotFoundException;
 import com.peerislands.ecommerce.exception.ValidationException;
+import com.peerislands.ecommerce.inventory.HotStockLedger;
+import com.peerislands.ecommerce.inventory.StockHoldRegistry;
 import com.peerislands.ecommerce.repository.ProductRepository;
+import com.peerislands.ecommerce.search.ProductSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,6 +40,24 @@ class ProductServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Mock
+    private HotStockLedger hotStockLedger;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ProductChangeFeedService productChangeFeedService;
+
+    @Mock
+    private GatewayCacheInvalidator gatewayCacheInvalidator;
+
+    @Spy
+    private ProductCache productCache = new ProductCache(100, Duration.ofMinutes(10), 100, Duration.ofSeconds(2));
+
+    @Mock
+    private StockHoldRegistry stockHoldRegistry;
+
     @InjectMocks
     private ProductService productService;
 
@@ -40,6 +72,8 @@ class ProductServiceTest {
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
+        ReflectionTestUtils.setField(productService, "batchMaxIds", 5);
+        ReflectionTestUtils.setField(productService, "batchQueryChunkSize", 2);
     }
 
     private Product sampleProduct() {
@@ -55,7 +89,7 @@ class ProductServiceTest {
     @Test
     void testGetAllProducts() {
         List<Product> products = Arrays.asList(sampleProduct());
-        when(productRepository.findAll()).thenReturn(products);
+        when(productRepository.findCatalog()).thenReturn(products);
         assertEquals(1, productService.getAllProducts().size());
     }
 
@@ -66,6 +100,24 @@ class ProductServiceTest {
         assertEquals(p, productService.getProductById(1));
     }
 
+    @Test
+    void testGetProductById_CachedAfterFirstLoad() {
+        Product p = sampleProduct();
+        when(productRepository.findById(1)).thenReturn(Optional.of(p));
+        productService.getProductById(1);
+        assertEquals(p, productService.getProductById(1));
+        verify(productRepository, times(1)).findById(1);
+    }
+
+    @Test
+    void testGetProductById_HotProduct_ReportsLedgerStock() {
+        when(productRepository.findById(1)).thenReturn(Optional.of(sampleProduct()));
+        when(hotStockLedger.tracks(1)).thenReturn(true);
+        when(hotStockLedger.available(1)).thenReturn(3);
+
+        assertEquals(3, productService.getProductById(1).getAvailableStock());
+    }
+
     @Test
     void testGetProductById_NotFound() {
         when(productRepository.findById(1)).thenReturn(Optional.empty());
@@ -79,6 +131,22 @@ class ProductServiceTest {
         assertEquals(p, productService.createProduct(p));
     }
 
+    @Test
+    void testCreateProduct_IndexesForSearch() {
+        Product p = sampleProduct();
+        when(productRepository.save(any())).thenReturn(p);
+        productService.createProduct(p);
+        verify(productSearchIndex).index(p);
+        verify(productChangeFeedService).record(p, ProductChange.ChangeType.CREATED);
+    }
+
+    @Test
+    void testSearchProducts_InvalidPriceRange() {
+        assertThrows(ValidationException.class, () -> productService.searchProducts(
+                "lamp", BigDecimal.TEN, BigDecimal.ONE, false, 0, 20));
+        verifyNoInteractions(productSearchIndex);
+    }
+
     @Test
     void testCreateProduct_InvalidPrice() {
         Product p = sampleProduct();
@@ -102,6 +170,23 @@ class ProductServiceTest {
         when(productRepository.save(any())).thenReturn(existing);
         Product result = productService.updateProduct(1, update);
         assertEquals("Updated", result.getName());
+        verify(gatewayCacheInvalidator).invalidateAll();
+    }
+
+    @Test
+    void testUpdateProduct_RefreshesCachedProduct() {
+        Product cached = sampleProduct();
+        Product existing = sampleProduct();
+        Product update = sampleProduct();
+        update.setName("Updated");
+        update.setAvailableStock(3);
+        when(productRepository.findById(1)).thenReturn(Optional.of(cached)).thenReturn(Optional.of(existing));
+        when(productRepository.save(any())).thenReturn(existing);
+        productService.getProductById(1);
+        productService.updateProduct(1, update);
+        assertEquals("Updated", productService.getProductById(1).getName());
+        assertEquals(3, productService.getStockQuantity(1));
+        verify(productRepository, times(2)).findById(1);
     }
 
     @Test
@@ -115,6 +200,16 @@ class ProductServiceTest {
         when(productRepository.existsById(1)).thenReturn(true);
         doNothing().when(productRepository).deleteById(1);
         assertDoesNotThrow(() -> productService.deleteProduct(1));
+        verify(productChangeFeedService).recordDeleted(1);
+    }
+
+    @Test
+    void testDeleteProduct_EvictsCachedProduct() {
+        when(productRepository.findById(1)).thenReturn(Optional.of(sampleProduct())).thenReturn(Optional.empty());
+        when(productRepository.existsById(1)).thenReturn(true);
+        productService.getProductById(1);
+        productService.deleteProduct(1);
+        assertThrows(ResourceNotFoundException.class, () -> productService.getProductById(1));
     }
 
     @Test
@@ -126,18 +221,34 @@ class ProductServiceTest {
     @Test
     void testUpdateStock_Valid() {
         Product p = sampleProduct();
+        when(productRepository.incrementStock(1, 5)).thenReturn(1);
         when(productRepository.findById(1)).thenReturn(Optional.of(p));
-        when(productRepository.save(any())).thenReturn(p);
         assertEquals(p, productService.updateStock(1, 5));
+        verify(productRepository, never()).save(any());
+        verify(productChangeFeedService).record(p, ProductChange.ChangeType.STOCK_CHANGED);
     }
 
     @Test
-    void testUpdateStock_Insufficient() {
+    void testUpdateStock_Decrease() {
         Product p = sampleProduct();
+        when(productRepository.decrementStock(1, 4, null)).thenReturn(1);
         when(productRepository.findById(1)).thenReturn(Optional.of(p));
+        assertEquals(p, productService.updateStock(1, -4));
+    }
+
+    @Test
+    void testUpdateStock_Insufficient() {
+        when(productRepository.decrementStock(1, 20, null)).thenReturn(0);
+        when(productRepository.existsById(1)).thenReturn(true);
         assertThrows(ValidationException.class, () -> productService.updateStock(1, -20));
     }
 
+    @Test
+    void testUpdateStock_NotFound() {
+        when(productRepository.incrementStock(1, 5)).thenReturn(0);
+        assertThrows(ResourceNotFoundException.class, () -> productService.updateStock(1, 5));
+    }
+
     @Test
     void testAddProductToCart_Success() {
         Product p = sampleProduct();
@@ -167,8 +278,8 @@ class ProductServiceTest {
         StockUpdateDTO dto = new StockUpdateDTO();
         dto.setQuantity(5);
         dto.setOperation("INCREASE");
+        when(productRepository.incrementStock(1, 5)).thenReturn(1);
         when(productRepository.findById(1)).thenReturn(Optional.of(p));
-        when(productRepository.save(any())).thenReturn(p);
         assertEquals(p, productService.updateProductStock(1, dto));
     }
 
@@ -178,9 +289,12 @@ class ProductServiceTest {
         StockUpdateDTO dto = new StockUpdateDTO();
         dto.setQuantity(5);
         dto.setOperation("DECREASE");
+        when(productRepository.decrementStock(1, 5, null)).thenReturn(1);
         when(productRepository.findById(1)).thenReturn(Optional.of(p));
-        when(productRepository.save(any())).thenReturn(p);
         assertEquals(p, productService.updateProductStock(1, dto));
+        verify(productRepository, never()).save(any());
+        verify(gatewayCacheInvalidator).invalidateProduct(1);
+        verify(gatewayCacheInvalidator, never()).invalidateAll();
     }
 
     @Test
@@ -189,10 +303,21 @@ class ProductServiceTest {
         StockUpdateDTO dto = new StockUpdateDTO();
         dto.setQuantity(20);
         dto.setOperation("DECREASE");
-        when(productRepository.findById(1)).thenReturn(Optional.of(p));
+        when(productRepository.decrementStock(1, 20, null)).thenReturn(0);
+        when(productRepository.existsById(1)).thenReturn(true);
         assertThrows(ValidationException.class, () -> productService.updateProductStock(1, dto));
     }
 
+    @Test
+    void testUpdateProductStock_Decrease_NotFound() {
+        StockUpdateDTO dto = new StockUpdateDTO();
+        dto.setQuantity(5);
+        dto.setOperation("DECREASE");
+        when(productRepository.decrementStock(1, 5, null)).thenReturn(0);
+        when(productRepository.existsById(1)).thenReturn(false);
+        assertThrows(ResourceNotFoundException.class, () -> productService.updateProductStock(1, dto));
+    }
+
     @Test
     void testUpdateProductStock_InvalidOperation() {
         Product p = sampleProduct();
@@ -212,4 +337,203 @@ class ProductServiceTest {
         when(productRepository.findById(1)).thenReturn(Optional.of(p));
         assertThrows(ValidationException.class, () -> productService.updateProductStock(1, dto));
     }
+
+    @Test
+    void testUpdateProductStock_HotProduct_ReservesFromLedger() {
+        Product p = sampleProduct();
+        StockUpdateDTO dto = new StockUpdateDTO(5, "DECREASE", null);
+        when(hotStockLedger.tracks(1)).thenReturn(true);
+        when(hotStockLedger.tryReserve(1, 5)).thenReturn(true);
+        when(hotStockLedger.available(1)).thenReturn(5);
+        when(productRepository.findById(1)).thenReturn(Optional.of(p));
+        assertEquals(5, productService.updateProductStock(1, dto).getAvailableStock());
+        verify(productRepository, never()).decrementStock(anyInt(), anyInt(), any());
+        verifyNoInteractions(productChangeFeedService);
+    }
+
+    @Test
+    void testUpdateProductStock_HotProduct_Insufficient() {
+        StockUpdateDTO dto = new StockUpdateDTO(5, "DECREASE", null);
+        when(hotStockLedger.tracks(1)).thenReturn(true);
+        when(hotStockLedger.tryReserve(1, 5)).thenReturn(false);
+        assertThrows(ValidationException.class, () -> productService.updateProductStock(1, dto));
+    }
+
+    @Test
+    void testGetStockQuantity_HotProduct() {
+        when(hotStockLedger.tracks(1)).thenReturn(true);
+        when(hotStockLedger.available(1)).thenReturn(42);
+        assertEquals(42, productService.getStockQuantity(1));
+        verifyNoInteractions(productRepository);
+    }
+
+    @Test
+    void testUpdateProduct_HotProduct_AdjustsLedgerInsteadOfColumn() {
+        Product existing = sampleProduct();
+        Product update = sampleProduct();
+        update.setAvailableStock(25);
+        when(hotStockLedger.tracks(1)).thenReturn(true);
+        when(hotStockLedger.available(1)).thenReturn(10);
+        when(productRepository.findById(1)).thenReturn(Optional.of(existing));
+        when(productRepository.save(any())).thenReturn(existing);
+        productService.updateProduct(1, update);
+        verify(hotStockLedger).add(1, 15);
+        assertEquals(10, existing.getAvailableStock());
+    }
+
+    @Test
+    void testUpdateProduct_RolledBack_LeavesCacheIndexAndLedgerUntouched() {
+        Product existing = sampleProduct();
+        Product update = sampleProduct();
+        update.setName("Updated");
+        update.setAvailableStock(25);
+        when(hotStockLedger.tracks(1)).thenReturn(true);
+        when(hotStockLedger.available(1)).thenReturn(10);
+        when(productRepository.findById(1)).thenReturn(Optional.of(existing));
+        when(productRepository.save(any())).thenReturn(existing);
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK, () -> productService.updateProduct(1, update));
+
+        verify(hotStockLedger, never()).add(anyInt(), anyInt());
+        verify(productCache, never()).put(any());
+        verifyNoInteractions(productSearchIndex);
+    }
+
+    @Test
+    void testUpdateProduct_Committed_AppliesLedgerAndCache() {
+        Product existing = sampleProduct();
+        Product update = sampleProduct();
+        update.setAvailableStock(25);
+        when(hotStockLedger.tracks(1)).thenReturn(true);
+        when(hotStockLedger.available(1)).thenReturn(10);
+        when(productRepository.findById(1)).thenReturn(Optional.of(existing));
+        when(productRepository.save(any())).thenReturn(existing);
+
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED, () -> productService.updateProduct(1, update));
+
+        verify(hotStockLedger).add(1, 15);
+        verify(productCache).evict(1);
+        verify(productCache, never()).put(any());
+        verify(productSearchIndex).index(argThat(product -> product.getAvailableStock() == 25));
+    }
+
+    @Test
+    void testUpdateProductStock_HotProduct_RolledBackReturnsReservedUnits() {
+        when(hotStockLedger.tracks(1)).thenReturn(true);
+        when(hotStockLedger.tryReserve(1, 5)).thenReturn(true);
+        when(hotStockLedger.available(1)).thenReturn(5);
+        when(productRepository.findById(1)).thenReturn(Optional.of(sampleProduct()));
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK,
+                () -> productService.updateProductStock(1, new StockUpdateDTO(5, "DECREASE", null)));
+
+        verify(hotStockLedger).add(1, 5);
+    }
+
+    @Test
+    void testPlaceStockHold_ChecksLockedStock() {
+        when(productRepository.lockStock(1)).thenReturn(Optional.of(10));
+        when(stockHoldRegistry.place(1, "user1", 4, Duration.ofSeconds(600), 10)).thenReturn(ProductStockHold.builder()
+                .productId(1).holderId("user1").quantity(4).expiresAt(Instant.now().plusSeconds(600)).build());
+
+        assertEquals(4, productService.placeStockHold(1, "user1", 4, 600L).getQuantity());
+    }
+
+    @Test
+    void testPlaceStockHold_ProductNotFound() {
+        when(productRepository.lockStock(1)).thenReturn(Optional.empty());
+        assertThrows(ResourceNotFoundException.class, () -> productService.placeStockHold(1, "user1", 4, null));
+        verifyNoInteractions(stockHoldRegistry);
+    }
+
+    @Test
+    void testGetStockQuantity_SubtractsOtherHolds() {
+        when(productRepository.findById(1)).thenReturn(Optional.of(sampleProduct()));
+        when(stockHoldRegistry.heldByOthers(1, null)).thenReturn(4);
+        when(stockHoldRegistry.heldByOthers(1, "user1")).thenReturn(0);
+        assertEquals(6, productService.getStockQuantity(1));
+        assertEquals(10, productService.getStockQuantity(1, "user1"));
+    }
+
+    @Test
+    void testUpdateProductStock_DecreaseConsumesOwnHold() {
+        when(productRepository.findById(1)).thenReturn(Optional.of(sampleProduct()));
+        when(productRepository.decrementStock(1, 10, "user1")).thenReturn(1);
+        productService.updateProductStock(1, new StockUpdateDTO(10, "DECREASE", "user1"));
+        verify(stockHoldRegistry).release(1, "user1");
+    }
+
+    @Test
+    void testUpdateProductStock_DecreaseRespectsOtherHolds() {
+        when(productRepository.decrementStock(1, 5, "user2")).thenReturn(0);
+        when(productRepository.existsById(1)).thenReturn(true);
+        StockUpdateDTO dto = new StockUpdateDTO(5, "DECREASE", "user2");
+        assertThrows(ValidationException.class, () -> productService.updateProductStock(1, dto));
+        verify(stockHoldRegistry, never()).release(anyInt(), anyString());
+    }
+
+    @Test
+    void testUpdateProductStock_HotProduct_ReturnsUnitsHeldByOthers() {
+        when(hotStockLedger.tracks(1)).thenReturn(true);
+        when(hotStockLedger.tryReserve(1, 5)).thenReturn(true);
+        when(hotStockLedger.available(1)).thenReturn(3);
+        when(stockHoldRegistry.heldByOthers(1, "user2")).thenReturn(4);
+        StockUpdateDTO dto = new StockUpdateDTO(5, "DECREASE", "user2");
+        assertThrows(ValidationException.class, () -> productService.updateProductStock(1, dto));
+        verify(hotStockLedger).add(1, 5);
+    }
+
+    /**
+     * Runs {@code work} with transaction synchronization active, then completes the
+     * registered synchronizations with {@code status}.
+     */
+    private static void inTransaction(int status, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    synchronization.afterCommit();
+                }
+                synchronization.afterCompletion(status);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private Product product(int id) {
+        Product p = sampleProduct();
+        p.setId(id);
+        p.setName("Product " + id);
+        return p;
+    }
+
+    @Test
+    void testGetProductsByIds_PreservesOrderAndReportsMissing() {
+        productCache.put(product(3));
+        when(productRepository.findByIdIn(List.of(7, 1))).thenReturn(List.of(product(1), product(7)));
+        when(productRepository.findByIdIn(List.of(9))).thenReturn(List.of());
+
+        ProductBatchDTO<Product> result = productService.getProductsByIds(List.of(7, 3, 1, 9, 3));
+
+        assertEquals(List.of(7, 3, 1), result.getProducts().stream().map(Product::getId).toList());
+        assertEquals(List.of(9), result.getMissingIds());
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetProductSummariesByIds_ReturnsSlimFields() {
+        when(productRepository.findByIdIn(List.of(1))).thenReturn(List.of(product(1)));
+
+        ProductBatchDTO<ProductSummaryDTO> result = productService.getProductSummariesByIds(List.of(1));
+
+        assertEquals(new ProductSummaryDTO(1, "Product 1", BigDecimal.valueOf(100)), result.getProducts().get(0));
+    }
+
+    @Test
+    void testGetProductsByIds_RejectsTooManyIds() {
+        assertThrows(ValidationException.class, () -> productService.getProductsByIds(List.of(1, 2, 3, 4, 5, 6)));
+        assertThrows(ValidationException.class, () -> productService.getProductsByIds(List.of()));
+    }
 }
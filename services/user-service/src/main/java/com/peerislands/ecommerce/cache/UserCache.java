@@ -0,0 +1,71 @@
+package com.peerislands.ecommerce.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.peerislands.ecommerce.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of users by id, with a secondary email to id index.
+ * <p>
+ * Entries are invalidated by this instance's writes only; other instances see a change once
+ * their entry expires after {@code user.cache.expire-after-write}.
+ */
+@Component
+public class UserCache {
+
+    private final Cache<String, User> usersById;
+    private final Cache<String, String> idsByEmail;
+
+    public UserCache(
+            @Value("${user.cache.maximum-size:100000}") long maximumSize,
+            @Value("${user.cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+        this.idsByEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    public User getById(String id, Function<String, User> loader) {
+        return usersById.get(id, loader);
+    }
+
+    public Map<String, User> getAllPresent(Collection<String> ids) {
+        return usersById.getAllPresent(ids);
+    }
+
+    public Optional<User> getByEmail(String email, Supplier<Optional<User>> loader) {
+        String id = idsByEmail.getIfPresent(email);
+        if (id != null) {
+            User user = usersById.getIfPresent(id);
+            if (user != null && email.equals(user.getEmail())) {
+                return Optional.of(user);
+            }
+        }
+        Optional<User> user = loader.get();
+        user.ifPresent(this::put);
+        return user;
+    }
+
+    public void put(User user) {
+        usersById.put(user.getId(), user);
+        idsByEmail.put(user.getEmail(), user.getId());
+    }
+
+    public void evict(User user) {
+        usersById.invalidate(user.getId());
+        idsByEmail.invalidate(user.getEmail());
+    }
+}
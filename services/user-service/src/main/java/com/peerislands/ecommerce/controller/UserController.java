@@ -1,12 +1,19 @@
 package com.peerislands.ecommerce.controller;
 
+import com.peerislands.ecommerce.dto.EmailExistsDTO;
+import com.peerislands.ecommerce.dto.UserBatchDTO;
+import com.peerislands.ecommerce.dto.UserBatchRequestDTO;
+import com.peerislands.ecommerce.dto.UserPageDTO;
 import com.peerislands.ecommerce.entity.User;
+import com.peerislands.ecommerce.service.UserExportService;
 import com.peerislands.ecommerce.service.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -17,6 +24,7 @@ public class UserController {
 
     
     private final UserService userService;
+    private final UserExportService userExportService;
 
     @PostMapping
     public ResponseEntity<User> createUser(@Valid @RequestBody User user) {
@@ -36,6 +44,38 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping(params = "ids")
+    public ResponseEntity<UserBatchDTO> getUsersByIds(@RequestParam List<String> ids) {
+        return ResponseEntity.ok(userService.getUsersByIds(ids));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<UserBatchDTO> getUsersByIds(@RequestBody UserBatchRequestDTO request) {
+        return ResponseEntity.ok(userService.getUsersByIds(request.getIds()));
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<UserPageDTO> getUsersPage(
+            @RequestParam int limit,
+            @RequestParam(required = false) String after) {
+        return ResponseEntity.ok(userService.getUsersPage(after, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<UserPageDTO> searchUsers(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String after) {
+        return ResponseEntity.ok(userService.searchUsers(q, after, limit));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(userExportService::exportUsers);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<User> updateUser(@PathVariable String id, @Valid @RequestBody User user) {
         User updatedUser = userService.updateUser(id, user);
@@ -53,4 +93,9 @@ public class UserController {
         User user = userService.getUserByEmail(email);
         return ResponseEntity.ok(user);
     }
+
+    @GetMapping("/email/{email}/exists")
+    public ResponseEntity<EmailExistsDTO> emailExists(@PathVariable String email) {
+        return ResponseEntity.ok(new EmailExistsDTO(email, userService.emailExists(email)));
+    }
 }
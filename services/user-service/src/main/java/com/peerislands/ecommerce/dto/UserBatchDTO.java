@@ -0,0 +1,18 @@
+package com.peerislands.ecommerce.dto;
+
+import com.peerislands.ecommerce.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBatchDTO {
+    private List<User> users; // in request order
+    private List<String> missingIds;
+}
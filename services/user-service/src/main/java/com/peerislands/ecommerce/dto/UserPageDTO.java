@@ -0,0 +1,18 @@
+package com.peerislands.ecommerce.dto;
+
+import com.peerislands.ecommerce.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPageDTO {
+    private List<User> users;
+    private String nextCursor; // null on the last page
+}
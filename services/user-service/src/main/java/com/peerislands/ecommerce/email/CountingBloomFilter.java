@@ -0,0 +1,159 @@
+package com.peerislands.ecommerce.email;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counting Bloom filter of strings with 4-bit counters packed sixteen to a word, so entries can
+ * be removed as well as added. Counters are updated lock-free with CAS; a counter that reaches
+ * its maximum sticks there, since it can no longer tell how many entries share it.
+ */
+class CountingBloomFilter {
+
+    private static final int COUNTER_BITS = 4;
+    private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+    private static final long COUNTER_MAX = (1L << COUNTER_BITS) - 1;
+
+    private final long counters;
+    private final int hashFunctions;
+    private final AtomicLongArray words;
+    private final AtomicLong nonZeroCounters = new AtomicLong();
+    private final AtomicLong entries = new AtomicLong();
+
+    CountingBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(expectedInsertions, 1);
+        this.counters = Math.max(COUNTERS_PER_WORD,
+                (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        this.hashFunctions = Math.max(1, (int) Math.round((double) counters / n * Math.log(2)));
+        this.words = new AtomicLongArray(Math.toIntExact((counters + COUNTERS_PER_WORD - 1) / COUNTERS_PER_WORD));
+    }
+
+    void add(String value) {
+        long[] hashes = hash(value);
+        for (int i = 0; i < hashFunctions; i++) {
+            increment(index(hashes, i));
+        }
+        entries.incrementAndGet();
+    }
+
+    /**
+     * Removes a value previously added. Values the filter rules out are ignored, so removing
+     * something that was never added cannot knock out counters shared with other entries.
+     */
+    boolean remove(String value) {
+        long[] hashes = hash(value);
+        if (!mightContain(hashes)) {
+            return false;
+        }
+        for (int i = 0; i < hashFunctions; i++) {
+            decrement(index(hashes, i));
+        }
+        entries.decrementAndGet();
+        return true;
+    }
+
+    boolean mightContain(String value) {
+        return mightContain(hash(value));
+    }
+
+    long entries() {
+        return Math.max(entries.get(), 0);
+    }
+
+    long sizeInBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+
+    int hashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * False-positive rate implied by the current share of non-zero counters.
+     */
+    double expectedFalsePositiveRate() {
+        return Math.pow((double) nonZeroCounters.get() / counters, hashFunctions);
+    }
+
+    private boolean mightContain(long[] hashes) {
+        for (int i = 0; i < hashFunctions; i++) {
+            if (counter(index(hashes, i)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long counter(long index) {
+        return (words.get(word(index)) >>> shift(index)) & COUNTER_MAX;
+    }
+
+    private void increment(long index) {
+        int word = word(index);
+        int shift = shift(index);
+        while (true) {
+            long current = words.get(word);
+            long count = (current >>> shift) & COUNTER_MAX;
+            if (count == COUNTER_MAX) {
+                return;
+            }
+            if (words.compareAndSet(word, current, current + (1L << shift))) {
+                if (count == 0) {
+                    nonZeroCounters.incrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private void decrement(long index) {
+        int word = word(index);
+        int shift = shift(index);
+        while (true) {
+            long current = words.get(word);
+            long count = (current >>> shift) & COUNTER_MAX;
+            if (count == 0 || count == COUNTER_MAX) {
+                return;
+            }
+            if (words.compareAndSet(word, current, current - (1L << shift))) {
+                if (count == 1) {
+                    nonZeroCounters.decrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private long index(long[] hashes, int i) {
+        return Math.floorMod(hashes[0] + i * hashes[1], counters);
+    }
+
+    private static int word(long index) {
+        return (int) (index / COUNTERS_PER_WORD);
+    }
+
+    private static int shift(long index) {
+        return (int) (index % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+
+    // Two independent 64-bit hashes combined as h1 + i * h2 (Kirsch-Mitzenmacher double hashing).
+    private static long[] hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        long h1 = mix(h);
+        long h2 = mix(h1 ^ 0x9e3779b97f4a7c15L) | 1;
+        return new long[]{h1, h2};
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
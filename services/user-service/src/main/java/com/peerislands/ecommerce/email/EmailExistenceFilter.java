@@ -0,0 +1,235 @@
+package com.peerislands.ecommerce.email;
+
+import com.peerislands.ecommerce.entity.EmailFilterAddition;
+import com.peerislands.ecommerce.entity.User;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+/**
+ * Answers "is this email registered?" from a counting Bloom filter of every user email, so
+ * emails that were never registered are rejected without a Mongo query.
+ * <p>
+ * The filter is built from a streaming scan once the application is ready and then follows
+ * writes. Every email an instance adds is also published to the {@code email_filter_addition}
+ * collection, which all instances poll, so an email registered elsewhere reads as taken here
+ * within the sync interval. Each poll overlaps the previous one by the allowed clock skew, as
+ * ids are stamped by the writing instance. Removals are not shared; a stale entry only costs a
+ * Mongo query until the periodic rebuild drops it. Until the first build completes, or when
+ * polling has fallen behind by more than {@code max-sync-lag}, every lookup goes to Mongo.
+ */
+@Slf4j
+@Component
+public class EmailExistenceFilter implements MeterBinder {
+
+    private final MongoTemplate mongoTemplate;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final int scanBatchSize;
+    private final Duration clockSkew;
+    private final Duration maxSyncLag;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Object rebuildLock = new Object();
+    private volatile CountingBloomFilter filter;
+    private volatile CountingBloomFilter building;
+    // Additions stamped before this instant have been applied
+    private volatile Instant syncedUntil = Instant.now();
+    private final NavigableSet<ObjectId> syncedAdditions = new TreeSet<>();
+
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder truePositives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder unfiltered = new LongAdder();
+
+    public EmailExistenceFilter(
+            MongoTemplate mongoTemplate,
+            @Value("${user.email-filter.expected-insertions:1000000}") long expectedInsertions,
+            @Value("${user.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${user.email-filter.scan-batch-size:1000}") int scanBatchSize,
+            @Value("${user.email-filter.clock-skew:5s}") Duration clockSkew,
+            @Value("${user.email-filter.max-sync-lag:10s}") Duration maxSyncLag) {
+        this.mongoTemplate = mongoTemplate;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.scanBatchSize = scanBatchSize;
+        this.clockSkew = clockSkew;
+        this.maxSyncLag = maxSyncLag;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${user.email-filter.rebuild-interval-ms:900000}",
+            initialDelayString = "${user.email-filter.rebuild-interval-ms:900000}")
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            try {
+                // Leave room to grow so the false-positive rate holds until the next rebuild
+                long sizing = Math.max(expectedInsertions, mongoTemplate.estimatedCount(User.class) * 2);
+                CountingBloomFilter next = new CountingBloomFilter(sizing, falsePositiveRate);
+                building = next;
+                Query query = new Query().cursorBatchSize(scanBatchSize);
+                query.fields().include("email");
+                long scanned = 0;
+                try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+                    Iterator<User> it = users.iterator();
+                    while (it.hasNext()) {
+                        next.add(it.next().getEmail());
+                        scanned++;
+                    }
+                }
+                filter = next;
+                log.info("Built email filter over {} users ({} bytes)", scanned, next.sizeInBytes());
+            } catch (DataAccessException e) {
+                log.warn("Failed to build email filter", e);
+            } finally {
+                building = null;
+            }
+        }
+    }
+
+    /**
+     * Whether a user with {@code email} exists, consulting {@code lookup} only when the filter
+     * cannot rule the email out.
+     */
+    public boolean exists(String email, BooleanSupplier lookup) {
+        CountingBloomFilter current = filter;
+        if (current == null || syncedUntil.plus(maxSyncLag).isBefore(Instant.now())) {
+            unfiltered.increment();
+            return lookup.getAsBoolean();
+        }
+        if (!current.mightContain(email)) {
+            negatives.increment();
+            return false;
+        }
+        boolean exists = lookup.getAsBoolean();
+        (exists ? truePositives : falsePositives).increment();
+        return exists;
+    }
+
+    /**
+     * Adds an email written through this instance and publishes it to the other instances.
+     */
+    public void add(String email) {
+        addLocally(email);
+        try {
+            mongoTemplate.insert(new EmailFilterAddition(null, email, instanceId, Instant.now()));
+        } catch (DataAccessException e) {
+            log.warn("Failed to publish email filter addition, other instances pick it up at their next rebuild", e);
+        }
+    }
+
+    /**
+     * Applies the additions other instances published since the last poll.
+     */
+    @Scheduled(fixedDelayString = "${user.email-filter.sync-interval-ms:1000}")
+    public synchronized void sync() {
+        Instant started = Instant.now();
+        ObjectId from = firstIdAt(syncedUntil.minus(clockSkew));
+        try {
+            Query query = new Query(Criteria.where("_id").gte(from).and("instanceId").ne(instanceId));
+            query.fields().include("email");
+            for (EmailFilterAddition addition : mongoTemplate.find(query, EmailFilterAddition.class)) {
+                if (syncedAdditions.add(new ObjectId(addition.getId()))) {
+                    addLocally(addition.getEmail());
+                }
+            }
+            // Older additions fall outside every later poll
+            syncedAdditions.headSet(from).clear();
+            syncedUntil = started;
+        } catch (DataAccessException e) {
+            log.warn("Failed to sync email filter additions", e);
+        }
+    }
+
+    private static ObjectId firstIdAt(Instant instant) {
+        return new ObjectId(String.format("%08x", instant.getEpochSecond()) + "0000000000000000");
+    }
+
+    private void addLocally(String email) {
+        // Read the filter under construction first: once it is cleared, the live filter is the new one
+        CountingBloomFilter next = building;
+        CountingBloomFilter current = filter;
+        if (current != null) {
+            current.add(email);
+        }
+        if (next != null && next != current) {
+            next.add(email);
+        }
+    }
+
+    /**
+     * Removes an email from the live filter. A rebuild in progress keeps it, which costs no more
+     * than a Mongo query for that email until the following rebuild.
+     */
+    public void remove(String email) {
+        CountingBloomFilter current = filter;
+        if (current != null) {
+            current.remove(email);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        filterGauge(registry, "user.email.filter.size", "bytes", "Memory used by the email filter",
+                CountingBloomFilter::sizeInBytes);
+        filterGauge(registry, "user.email.filter.entries", null, "Emails held by the email filter",
+                CountingBloomFilter::entries);
+        Gauge.builder("user.email.filter.false.positive.rate", this,
+                        f -> f.filter == null ? Double.NaN : f.filter.expectedFalsePositiveRate())
+                .tag("type", "expected")
+                .description("False-positive rate implied by the filter's occupancy")
+                .register(registry);
+        Gauge.builder("user.email.filter.false.positive.rate", this, EmailExistenceFilter::observedFalsePositiveRate)
+                .tag("type", "observed")
+                .description("Share of lookups for unregistered emails that the filter let through to Mongo")
+                .register(registry);
+        lookupCounter(registry, "negative", negatives);
+        lookupCounter(registry, "true_positive", truePositives);
+        lookupCounter(registry, "false_positive", falsePositives);
+        lookupCounter(registry, "unfiltered", unfiltered);
+    }
+
+    private double observedFalsePositiveRate() {
+        double fp = falsePositives.sum();
+        double absent = fp + negatives.sum();
+        return absent == 0 ? 0 : fp / absent;
+    }
+
+    private void filterGauge(MeterRegistry registry, String name, String unit, String description,
+                             ToDoubleFunction<CountingBloomFilter> value) {
+        Gauge.builder(name, this, f -> f.filter == null ? 0 : value.applyAsDouble(f.filter))
+                .baseUnit(unit)
+                .description(description)
+                .register(registry);
+    }
+
+    private void lookupCounter(MeterRegistry registry, String outcome, LongAdder count) {
+        FunctionCounter.builder("user.email.filter.lookups", count, LongAdder::sum)
+                .tag("outcome", outcome)
+                .description("Email existence lookups by how the filter answered them")
+                .register(registry);
+    }
+}
@@ -0,0 +1,32 @@
+package com.peerislands.ecommerce.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * An email one user-service instance added to its email filter, read by the other instances so
+ * their filters never rule out an email registered elsewhere. Expires well after every instance
+ * has rebuilt its filter from the users themselves.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Document(collection = "email_filter_addition")
+public class EmailFilterAddition {
+
+    @Id
+    private String id;
+
+    private String email;
+
+    private String instanceId;
+
+    @Indexed(expireAfter = "1h")
+    private Instant createdAt;
+}
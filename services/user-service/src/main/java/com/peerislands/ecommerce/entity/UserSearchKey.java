@@ -0,0 +1,30 @@
+package com.peerislands.ecommerce.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * One normalized, searchable string of a user (a name or the email), kept in its own
+ * collection so prefix searches are a single ordered range scan of the key index.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Document(collection = "user_search_key")
+@CompoundIndex(name = "key_user", def = "{'key': 1, 'userId': 1}")
+public class UserSearchKey {
+
+    // User id and key, so indexing the same key twice overwrites instead of duplicating it
+    @Id
+    private String id;
+
+    private String key;
+
+    @Indexed
+    private String userId;
+}
@@ -0,0 +1,7 @@
+package com.peerislands.ecommerce.exception;
+
+public class ValidationException extends RuntimeException {
+    public ValidationException(String message) {
+        super(message);
+    }
+}
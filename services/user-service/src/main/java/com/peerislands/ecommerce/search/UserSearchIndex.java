@@ -0,0 +1,218 @@
+package com.peerislands.ecommerce.search;
+
+import com.peerislands.ecommerce.entity.User;
+import com.peerislands.ecommerce.entity.UserSearchKey;
+import com.peerislands.ecommerce.exception.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Prefix index over user first name, last name, full name and email.
+ * <p>
+ * Each user contributes one lower-cased key per searchable string to the
+ * {@code user_search_key} collection. A search is a range scan of the (key, userId) index
+ * starting at the prefix, so it reads only the rows of the page whatever the collection size,
+ * and the position of the last row read is the cursor of the next page.
+ * <p>
+ * A key's id is derived from the user id and the key, so writing it is an idempotent upsert.
+ * Existing users are backfilled once per database: the instance holding the backfill lease in
+ * {@code user_search_backfill} indexes every user and then records completion there, and a
+ * backfill cut short is resumed by the next instance to start.
+ */
+@Slf4j
+@Component
+public class UserSearchIndex {
+
+    private static final String KEY = "key";
+    private static final String USER_ID = "userId";
+    private static final char CURSOR_SEPARATOR = '\n';
+    // Highest code point, so the bound sorts after every key that starts with the prefix
+    private static final String MAX_CODE_POINT = "\uDBFF\uDFFF";
+    static final String BACKFILL_COLLECTION = "user_search_backfill";
+    static final String BACKFILL_LOCK = "lock";
+    static final String BACKFILL_DONE = "done";
+
+    private final MongoTemplate mongoTemplate;
+    private final int rebuildBatchSize;
+    private final Duration backfillLease;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public UserSearchIndex(
+            MongoTemplate mongoTemplate,
+            @Value("${user.search.rebuild-batch-size:1000}") int rebuildBatchSize,
+            @Value("${user.search.backfill-lease:30m}") Duration backfillLease) {
+        this.mongoTemplate = mongoTemplate;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.backfillLease = backfillLease;
+    }
+
+    /**
+     * Indexes existing users unless a previous backfill completed or another instance is running one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (mongoTemplate.exists(byId(BACKFILL_DONE), BACKFILL_COLLECTION) || !acquireBackfillLease()) {
+            return;
+        }
+        try {
+            // Keys written before ids were derived would otherwise sit next to their upserted copies
+            mongoTemplate.remove(Query.query(Criteria.where("_id").type(JsonSchemaObject.Type.OBJECT_ID)),
+                    UserSearchKey.class);
+            List<UserSearchKey> batch = new ArrayList<>(rebuildBatchSize);
+            long indexed = 0;
+            try (Stream<User> users = mongoTemplate.stream(new Query().cursorBatchSize(rebuildBatchSize), User.class)) {
+                Iterator<User> it = users.iterator();
+                while (it.hasNext()) {
+                    batch.addAll(keysOf(it.next()));
+                    indexed++;
+                    if (batch.size() >= rebuildBatchSize) {
+                        upsertAll(batch);
+                        batch.clear();
+                    }
+                }
+            }
+            upsertAll(batch);
+            mongoTemplate.save(new Document("_id", BACKFILL_DONE).append("completedAt", Instant.now()), BACKFILL_COLLECTION);
+            log.info("Indexed {} users for search", indexed);
+        } finally {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(BACKFILL_LOCK).and("owner").is(instanceId)),
+                    BACKFILL_COLLECTION);
+        }
+    }
+
+    public void index(User user) {
+        remove(user.getId());
+        upsertAll(keysOf(user));
+    }
+
+    public void remove(String userId) {
+        mongoTemplate.remove(Query.query(Criteria.where(USER_ID).is(userId)), UserSearchKey.class);
+    }
+
+    /**
+     * Ids of users with a name or email starting with {@code prefix}, ordered by the matching
+     * key. A user matching on several keys is returned once per page but may reappear on a
+     * later page.
+     */
+    public SearchPage search(String prefix, String after, int limit) {
+        String normalizedPrefix = normalize(prefix);
+        if (normalizedPrefix.isEmpty()) {
+            throw new ValidationException("Search prefix must not be blank");
+        }
+        String upperBound = normalizedPrefix + MAX_CODE_POINT;
+        Criteria criteria = after == null
+                ? Criteria.where(KEY).gte(normalizedPrefix).lt(upperBound)
+                : afterCursor(after, upperBound);
+        Query query = Query.query(criteria)
+                .with(Sort.by(KEY, USER_ID))
+                .limit(limit + 1);
+        query.fields().include(KEY, USER_ID).exclude("_id");
+        List<UserSearchKey> rows = mongoTemplate.find(query, UserSearchKey.class);
+
+        boolean hasMore = rows.size() > limit;
+        if (hasMore) {
+            rows = rows.subList(0, limit);
+        }
+        Set<String> userIds = new LinkedHashSet<>();
+        rows.forEach(row -> userIds.add(row.getUserId()));
+        String nextCursor = hasMore ? encodeCursor(rows.get(rows.size() - 1)) : null;
+        return new SearchPage(List.copyOf(userIds), nextCursor);
+    }
+
+    static List<UserSearchKey> keysOf(User user) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(normalize(user.getFirstName()));
+        keys.add(normalize(user.getLastName()));
+        keys.add(normalize(user.getFirstName() + " " + user.getLastName()));
+        keys.add(normalize(user.getEmail()));
+        keys.remove("");
+        return keys.stream()
+                .map(key -> new UserSearchKey(user.getId() + CURSOR_SEPARATOR + key, key, user.getId()))
+                .toList();
+    }
+
+    // Takes the lease when it is free or has lapsed; an unexpired lease makes the upsert collide on _id
+    private boolean acquireBackfillLease() {
+        Instant now = Instant.now();
+        Query free = Query.query(Criteria.where("_id").is(BACKFILL_LOCK).and("expiresAt").lt(now));
+        Update lease = Update.update("owner", instanceId).set("expiresAt", now.plus(backfillLease));
+        try {
+            mongoTemplate.upsert(free, lease, BACKFILL_COLLECTION);
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.info("Another instance is backfilling the user search index");
+            return false;
+        }
+    }
+
+    private void upsertAll(List<UserSearchKey> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserSearchKey.class);
+        for (UserSearchKey key : keys) {
+            operations.upsert(byId(key.getId()), Update.update(KEY, key.getKey()).set(USER_ID, key.getUserId()));
+        }
+        operations.execute();
+    }
+
+    private static Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Both branches are bounded on the key index, so the planner merges two range scans
+    private static Criteria afterCursor(String cursor, String upperBound) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Invalid cursor: " + cursor);
+        }
+        int separator = decoded.lastIndexOf(CURSOR_SEPARATOR);
+        if (separator < 0) {
+            throw new ValidationException("Invalid cursor: " + cursor);
+        }
+        String key = decoded.substring(0, separator);
+        String userId = decoded.substring(separator + 1);
+        return new Criteria().orOperator(
+                Criteria.where(KEY).gt(key).lt(upperBound),
+                Criteria.where(KEY).is(key).and(USER_ID).gt(userId));
+    }
+
+    private static String encodeCursor(UserSearchKey row) {
+        String raw = row.getKey() + CURSOR_SEPARATOR + row.getUserId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public record SearchPage(List<String> userIds, String nextCursor) {
+    }
+}
@@ -0,0 +1,48 @@
+package com.peerislands.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.peerislands.ecommerce.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams every user as newline-delimited JSON straight from a Mongo cursor, so memory use
+ * stays at one cursor batch regardless of the collection size.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserExportService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${user.export.batch-size:500}")
+    private int batchSize;
+
+    public void exportUsers(OutputStream out) {
+        ObjectWriter writer = objectMapper.writerFor(User.class);
+        Query query = new Query().cursorBatchSize(batchSize);
+        try (Stream<User> users = mongoTemplate.stream(query, User.class)) {
+            OutputStream buffered = new BufferedOutputStream(out);
+            Iterator<User> it = users.iterator();
+            while (it.hasNext()) {
+                buffered.write(writer.writeValueAsBytes(it.next()));
+                buffered.write('\n');
+            }
+            buffered.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write user export", e);
+        }
+    }
+}
@@ -1,49 +1,178 @@
 package com.peerislands.ecommerce.service;
 
+import com.peerislands.ecommerce.cache.UserCache;
+import com.peerislands.ecommerce.dto.UserBatchDTO;
+import com.peerislands.ecommerce.dto.UserPageDTO;
+import com.peerislands.ecommerce.email.EmailExistenceFilter;
 import com.peerislands.ecommerce.entity.User;
 import com.peerislands.ecommerce.exception.UserNotFoundException;
+import com.peerislands.ecommerce.exception.ValidationException;
 import com.peerislands.ecommerce.repository.UserRepository;
+import com.peerislands.ecommerce.search.UserSearchIndex;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final EmailExistenceFilter emailFilter;
+    private final UserSearchIndex searchIndex;
+
+    @Value("${user.batch.max-ids:1000}")
+    private int batchMaxIds;
+
+    // Bounds the $in list of a single query
+    @Value("${user.batch.query-chunk-size:500}")
+    private int batchQueryChunkSize;
 
     public User createUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.put(saved);
+        emailFilter.add(saved.getEmail());
+        searchIndex.index(saved);
+        return saved;
     }
 
     public User getUserById(String id) {
-        return userRepository.findById(id)
-                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+        return userCache.getById(id, this::loadUser);
+    }
+
+    /**
+     * Looks up many users at once. Cached users are served from memory and the rest are
+     * loaded with $in queries of at most {@code user.batch.query-chunk-size} ids.
+     */
+    public UserBatchDTO getUsersByIds(List<String> ids) {
+        if (ids == null || ids.isEmpty() || ids.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException("At least one user id is required and ids cannot be empty");
+        }
+        List<String> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (uniqueIds.size() > batchMaxIds) {
+            throw new ValidationException("At most " + batchMaxIds + " user ids can be requested at once");
+        }
+
+        Map<String, User> found = new HashMap<>(userCache.getAllPresent(uniqueIds));
+        List<String> misses = uniqueIds.stream().filter(id -> !found.containsKey(id)).toList();
+        for (int from = 0; from < misses.size(); from += batchQueryChunkSize) {
+            List<String> chunk = misses.subList(from, Math.min(from + batchQueryChunkSize, misses.size()));
+            for (User user : userRepository.findAllById(chunk)) {
+                userCache.put(user);
+                found.put(user.getId(), user);
+            }
+        }
+
+        List<User> users = new ArrayList<>(found.size());
+        List<String> missingIds = new ArrayList<>();
+        for (String id : uniqueIds) {
+            User user = found.get(id);
+            if (user == null) {
+                missingIds.add(id);
+            } else {
+                users.add(user);
+            }
+        }
+        return UserBatchDTO.builder()
+                .users(users)
+                .missingIds(missingIds)
+                .build();
     }
 
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
 
+    /**
+     * One page of users in _id order, starting after the {@code after} cursor.
+     */
+    public UserPageDTO getUsersPage(String after, int limit) {
+        if (limit < 1 || limit > 1000) {
+            throw new ValidationException("Limit must be between 1 and 1000");
+        }
+        if (after != null && !ObjectId.isValid(after)) {
+            throw new ValidationException("Invalid cursor: " + after);
+        }
+        Limit fetch = Limit.of(limit + 1);
+        List<User> users = after == null
+                ? userRepository.findAllByOrderByIdAsc(fetch)
+                : userRepository.findByIdGreaterThanOrderByIdAsc(after, fetch);
+        boolean hasMore = users.size() > limit;
+        if (hasMore) {
+            users = users.subList(0, limit);
+        }
+        return UserPageDTO.builder()
+                .users(users)
+                .nextCursor(hasMore ? users.get(users.size() - 1).getId() : null)
+                .build();
+    }
+
+    /**
+     * Users whose first name, last name, full name or email starts with {@code prefix},
+     * case-insensitively.
+     */
+    public UserPageDTO searchUsers(String prefix, String after, int limit) {
+        if (limit < 1 || limit > 100) {
+            throw new ValidationException("Limit must be between 1 and 100");
+        }
+        UserSearchIndex.SearchPage page = searchIndex.search(prefix, after, limit);
+        Map<String, User> users = userRepository.findAllById(page.userIds()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return UserPageDTO.builder()
+                .users(page.userIds().stream().map(users::get).filter(Objects::nonNull).toList())
+                .nextCursor(page.nextCursor())
+                .build();
+    }
+
     public User updateUser(String id, User userDetails) {
-        User user = getUserById(id);
+        // Loaded from the database, the cached instance must not change before the save succeeds
+        User user = loadUser(id);
+        String previousEmail = user.getEmail();
+        userCache.evict(user);
         user.setFirstName(userDetails.getFirstName());
         user.setLastName(userDetails.getLastName());
         user.setEmail(userDetails.getEmail());
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.put(saved);
+        if (!saved.getEmail().equals(previousEmail)) {
+            emailFilter.add(saved.getEmail());
+            emailFilter.remove(previousEmail);
+        }
+        searchIndex.index(saved);
+        return saved;
     }
 
     public void deleteUser(String id) {
-        User user = getUserById(id);
+        User user = loadUser(id);
         userRepository.delete(user);
+        userCache.evict(user);
+        emailFilter.remove(user.getEmail());
+        searchIndex.remove(id);
     }
 
     public User getUserByEmail(String email) {
-        return userRepository.findAll().stream()
-                .filter(user -> user.getEmail().equals(email))
-                .findFirst()
+        return userCache.getByEmail(email, () -> userRepository.findByEmail(email))
                 .orElseThrow(() -> new UserNotFoundException("User not found with email: " + email));
     }
+
+    public boolean emailExists(String email) {
+        return emailFilter.exists(email, () -> userRepository.existsByEmail(email));
+    }
+
+    private User loadUser(String id) {
+        return userRepository.findById(id)
+                .orElseThrow(() -> new UserNotFoundException("User not found with id: " + id));
+    }
 }
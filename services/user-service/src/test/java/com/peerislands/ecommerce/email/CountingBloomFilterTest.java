@@ -0,0 +1,54 @@
+package com.peerislands.ecommerce.email;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CountingBloomFilterTest {
+
+    @Test
+    void mightContain_HasNoFalseNegatives() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("user" + i + "@example.com"));
+        }
+        assertEquals(10_000, filter.entries());
+    }
+
+    @Test
+    void mightContain_StaysNearConfiguredFalsePositiveRate() {
+        CountingBloomFilter filter = new CountingBloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("other" + i + "@example.com")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives / 100_000.0 < 0.02, "false positives: " + falsePositives);
+        assertEquals(0.01, filter.expectedFalsePositiveRate(), 0.005);
+    }
+
+    @Test
+    void remove_ForgetsOnlyThatValue() {
+        CountingBloomFilter filter = new CountingBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 1_000; i++) {
+            filter.add("user" + i + "@example.com");
+        }
+        assertTrue(filter.remove("user7@example.com"));
+        assertFalse(filter.remove("never-added@example.com"));
+
+        assertFalse(filter.mightContain("user7@example.com"));
+        for (int i = 0; i < 1_000; i++) {
+            if (i != 7) {
+                assertTrue(filter.mightContain("user" + i + "@example.com"));
+            }
+        }
+        assertEquals(999, filter.entries());
+    }
+}
@@ -0,0 +1,125 @@
+package com.peerislands.ecommerce.email;
+
+import com.peerislands.ecommerce.entity.EmailFilterAddition;
+import com.peerislands.ecommerce.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailExistenceFilterTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private EmailExistenceFilter emailFilter;
+
+    @BeforeEach
+    void setUp() {
+        emailFilter = new EmailExistenceFilter(mongoTemplate, 1_000, 0.01, 100, Duration.ofSeconds(5), Duration.ofSeconds(10));
+    }
+
+    @Test
+    void exists_BeforeBuild_ShouldAskMongo() {
+        assertTrue(emailFilter.exists("john@example.com", () -> true));
+    }
+
+    @Test
+    void exists_ForUnknownEmail_ShouldNotAskMongo() {
+        // Arrange
+        givenUsers(new User("1", "John", "Doe", "john@example.com"));
+        emailFilter.rebuild();
+        AtomicInteger lookups = new AtomicInteger();
+
+        // Act & Assert
+        assertFalse(emailFilter.exists("jane@example.com", () -> lookups.incrementAndGet() > 0));
+        assertTrue(emailFilter.exists("john@example.com", () -> lookups.incrementAndGet() > 0));
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void addAndRemove_ShouldFollowWritesAfterBuild() {
+        // Arrange
+        givenUsers();
+        emailFilter.rebuild();
+
+        // Act
+        emailFilter.add("jane@example.com");
+
+        // Assert
+        assertTrue(emailFilter.exists("jane@example.com", () -> true));
+        emailFilter.remove("jane@example.com");
+        assertFalse(emailFilter.exists("jane@example.com", () -> fail("filter should rule the email out")));
+    }
+
+    @Test
+    void sync_ShouldApplyAdditionsFromOtherInstancesOnce() {
+        // Arrange
+        givenUsers();
+        emailFilter.rebuild();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        emailFilter.bindTo(registry);
+        EmailFilterAddition addition = new EmailFilterAddition(
+                new ObjectId().toHexString(), "jane@example.com", "other-instance", Instant.now());
+        when(mongoTemplate.find(any(Query.class), eq(EmailFilterAddition.class))).thenReturn(List.of(addition));
+
+        // Act
+        emailFilter.sync();
+        emailFilter.sync();
+
+        // Assert
+        assertTrue(emailFilter.exists("jane@example.com", () -> true));
+        assertEquals(1, registry.get("user.email.filter.entries").gauge().value());
+    }
+
+    @Test
+    void exists_WhenSyncFallsBehind_ShouldAskMongo() {
+        // Arrange
+        emailFilter = new EmailExistenceFilter(mongoTemplate, 1_000, 0.01, 100, Duration.ofSeconds(5), Duration.ofSeconds(-1));
+        givenUsers();
+        emailFilter.rebuild();
+
+        // Act & Assert
+        assertTrue(emailFilter.exists("jane@example.com", () -> true));
+    }
+
+    @Test
+    void bindTo_ShouldReportSizeAndFalsePositiveRate() {
+        // Arrange
+        givenUsers(new User("1", "John", "Doe", "john@example.com"));
+        emailFilter.rebuild();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        emailFilter.bindTo(registry);
+
+        // Act
+        emailFilter.exists("jane@example.com", () -> false);
+
+        // Assert
+        assertTrue(registry.get("user.email.filter.size").gauge().value() > 0);
+        assertEquals(1, registry.get("user.email.filter.entries").gauge().value());
+        assertEquals(0, registry.get("user.email.filter.false.positive.rate").tag("type", "observed").gauge().value());
+        assertEquals(1, registry.get("user.email.filter.lookups").tag("outcome", "negative").functionCounter().count());
+    }
+
+    private void givenUsers(User... users) {
+        when(mongoTemplate.estimatedCount(User.class)).thenReturn((long) users.length);
+        when(mongoTemplate.stream(any(Query.class), eq(User.class))).thenReturn(Stream.of(users));
+    }
+}
@@ -0,0 +1,143 @@
+package com.peerislands.ecommerce.search;
+
+import com.peerislands.ecommerce.entity.User;
+import com.peerislands.ecommerce.entity.UserSearchKey;
+import com.peerislands.ecommerce.exception.ValidationException;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserSearchIndexTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private UserSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new UserSearchIndex(mongoTemplate, 100, Duration.ofMinutes(30));
+    }
+
+    @Test
+    void keysOf_ShouldNormalizeNamesAndEmail() {
+        User user = new User("U1", " John", "Doe ", "John.Doe@Example.com");
+
+        List<String> keys = UserSearchIndex.keysOf(user).stream().map(UserSearchKey::getKey).toList();
+
+        assertEquals(List.of("john", "doe", "john doe", "john.doe@example.com"), keys);
+        assertEquals("U1\njohn", UserSearchIndex.keysOf(user).get(0).getId());
+    }
+
+    @Test
+    void backfill_WhenCompleted_ShouldSkip() {
+        when(mongoTemplate.exists(any(Query.class), eq(UserSearchIndex.BACKFILL_COLLECTION))).thenReturn(true);
+
+        searchIndex.backfill();
+
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), anyString());
+        verify(mongoTemplate, never()).stream(any(Query.class), eq(User.class));
+    }
+
+    @Test
+    void backfill_WhenAnotherInstanceHoldsLease_ShouldSkip() {
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(UserSearchIndex.BACKFILL_COLLECTION)))
+                .thenThrow(new DuplicateKeyException("lock"));
+
+        searchIndex.backfill();
+
+        verify(mongoTemplate, never()).stream(any(Query.class), eq(User.class));
+        verify(mongoTemplate, never()).save(any(Document.class), anyString());
+    }
+
+    @Test
+    void backfill_ShouldUpsertKeysThenMarkCompletedAndReleaseLease() {
+        // Arrange
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserSearchKey.class)).thenReturn(bulk);
+        when(mongoTemplate.stream(any(Query.class), eq(User.class)))
+                .thenReturn(Stream.of(new User("U1", "John", "Doe", "john@example.com")));
+
+        // Act
+        searchIndex.backfill();
+
+        // Assert
+        InOrder inOrder = inOrder(mongoTemplate, bulk);
+        inOrder.verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(UserSearchIndex.BACKFILL_COLLECTION));
+        inOrder.verify(bulk, times(4)).upsert(any(Query.class), any(Update.class));
+        inOrder.verify(bulk).execute();
+        ArgumentCaptor<Document> marker = ArgumentCaptor.forClass(Document.class);
+        inOrder.verify(mongoTemplate).save(marker.capture(), eq(UserSearchIndex.BACKFILL_COLLECTION));
+        assertEquals(UserSearchIndex.BACKFILL_DONE, marker.getValue().get("_id"));
+        inOrder.verify(mongoTemplate).remove(any(Query.class), eq(UserSearchIndex.BACKFILL_COLLECTION));
+    }
+
+    @Test
+    void search_ShouldScanKeyRangeAndReturnCursor() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(UserSearchKey.class))).thenReturn(List.of(
+                new UserSearchKey(null, "john", "U1"),
+                new UserSearchKey(null, "john doe", "U1"),
+                new UserSearchKey(null, "john.doe@example.com", "U2")));
+
+        // Act
+        UserSearchIndex.SearchPage page = searchIndex.search("Jo", null, 2);
+
+        // Assert
+        assertEquals(List.of("U1"), page.userIds());
+        assertNotNull(page.nextCursor());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(UserSearchKey.class));
+        assertEquals(3, query.getValue().getLimit());
+        assertEquals(new Document("key", 1).append("userId", 1), query.getValue().getSortObject());
+        Document key = (Document) query.getValue().getQueryObject().get("key");
+        assertEquals("jo", key.get("$gte"));
+        assertEquals("jo\uDBFF\uDFFF", key.get("$lt"));
+    }
+
+    @Test
+    void search_WithCursor_ShouldResumeAfterLastKey() {
+        // Arrange
+        when(mongoTemplate.find(any(Query.class), eq(UserSearchKey.class)))
+                .thenReturn(List.of(new UserSearchKey(null, "john doe", "U1"), new UserSearchKey(null, "jon", "U3")))
+                .thenReturn(List.of());
+        String cursor = searchIndex.search("jo", null, 1).nextCursor();
+
+        // Act
+        searchIndex.search("jo", cursor, 1);
+
+        // Assert
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(query.capture(), eq(UserSearchKey.class));
+        List<?> branches = (List<?>) query.getAllValues().get(1).getQueryObject().get("$or");
+        assertEquals(new Document("key", "john doe").append("userId", new Document("$gt", "U1")), branches.get(1));
+    }
+
+    @Test
+    void search_WithBlankPrefixOrBadCursor_ShouldThrowException() {
+        assertThrows(ValidationException.class, () -> searchIndex.search("  ", null, 10));
+        assertThrows(ValidationException.class, () -> searchIndex.search("jo", "bm8tc2VwYXJhdG9y", 10));
+        verifyNoInteractions(mongoTemplate);
+    }
+}
@@ -0,0 +1,53 @@
+package com.peerislands.ecommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.peerislands.ecommerce.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserExportServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Test
+    void exportUsers_ShouldWriteOneJsonDocumentPerLine() throws Exception {
+        // Arrange
+        UserExportService exportService = new UserExportService(mongoTemplate, new ObjectMapper());
+        ReflectionTestUtils.setField(exportService, "batchSize", 2);
+        Stream<User> users = Stream.of(
+                new User("1", "John", "Doe", "john@example.com"),
+                new User("2", "Jane", "Roe", "jane@example.com"));
+        Stream<User> cursor = spy(users);
+        when(mongoTemplate.stream(any(Query.class), eq(User.class))).thenReturn(cursor);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        exportService.exportUsers(out);
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("jane@example.com", new ObjectMapper().readValue(lines[1], User.class).getEmail());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).stream(query.capture(), eq(User.class));
+        assertEquals(2, query.getValue().getMeta().getCursorBatchSize());
+        verify(cursor).close();
+    }
+}
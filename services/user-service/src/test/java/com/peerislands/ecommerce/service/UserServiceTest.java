@@ -1,15 +1,25 @@
 package com.peerislands.ecommerce.service;
 
+import com.peerislands.ecommerce.cache.UserCache;
+import com.peerislands.ecommerce.dto.UserBatchDTO;
+import com.peerislands.ecommerce.dto.UserPageDTO;
+import com.peerislands.ecommerce.email.EmailExistenceFilter;
 import com.peerislands.ecommerce.entity.User;
 import com.peerislands.ecommerce.exception.UserNotFoundException;
+import com.peerislands.ecommerce.exception.ValidationException;
 import com.peerislands.ecommerce.repository.UserRepository;
+import com.peerislands.ecommerce.search.UserSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -24,6 +34,15 @@ class UserServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private EmailExistenceFilter emailFilter;
+
+    @Mock
+    private UserSearchIndex searchIndex;
+
+    @Spy
+    private UserCache userCache = new UserCache(100, Duration.ofMinutes(5));
+
     @InjectMocks
     private UserService userService;
 
@@ -45,6 +64,9 @@ class UserServiceTest {
         updatedUser.setFirstName("John");
         updatedUser.setLastName("Smith");
         updatedUser.setEmail("john.smith@example.com");
+
+        ReflectionTestUtils.setField(userService, "batchMaxIds", 5);
+        ReflectionTestUtils.setField(userService, "batchQueryChunkSize", 2);
     }
 
     @Test
@@ -62,6 +84,8 @@ class UserServiceTest {
         assertEquals("Doe", result.getLastName());
         assertEquals("john.doe@example.com", result.getEmail());
         verify(userRepository).save(any(User.class));
+        verify(emailFilter).add("john.doe@example.com");
+        verify(searchIndex).index(user);
     }
 
     @Test
@@ -154,6 +178,8 @@ class UserServiceTest {
         // Assert
         verify(userRepository).findById("USER-001");
         verify(userRepository).delete(user);
+        verify(emailFilter).remove("john.doe@example.com");
+        verify(searchIndex).remove("USER-001");
     }
 
     @Test
@@ -172,9 +198,7 @@ class UserServiceTest {
     @Test
     void getUserByEmail_WhenUserExists_ShouldReturnUser() {
         // Arrange
-        List<User> users = new ArrayList<>();
-        users.add(user);
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findByEmail("john.doe@example.com")).thenReturn(Optional.of(user));
 
         // Act
         User result = userService.getUserByEmail("john.doe@example.com");
@@ -183,20 +207,131 @@ class UserServiceTest {
         assertNotNull(result);
         assertEquals("USER-001", result.getId());
         assertEquals("john.doe@example.com", result.getEmail());
-        verify(userRepository).findAll();
+        verify(userRepository).findByEmail("john.doe@example.com");
+        verify(userRepository, never()).findAll();
     }
 
     @Test
     void getUserByEmail_WhenUserDoesNotExist_ShouldThrowException() {
         // Arrange
-        List<User> users = new ArrayList<>();
-        users.add(user);
-        when(userRepository.findAll()).thenReturn(users);
+        when(userRepository.findByEmail("nonexistent@example.com")).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(UserNotFoundException.class, () -> 
             userService.getUserByEmail("nonexistent@example.com")
         );
-        verify(userRepository).findAll();
+        verify(userRepository).findByEmail("nonexistent@example.com");
+    }
+
+    @Test
+    void getUserByEmail_WhenCached_ShouldNotQueryRepository() {
+        // Arrange
+        when(userRepository.findByEmail("john.doe@example.com")).thenReturn(Optional.of(user));
+        userService.getUserByEmail("john.doe@example.com");
+
+        // Act
+        User byEmail = userService.getUserByEmail("john.doe@example.com");
+        User byId = userService.getUserById("USER-001");
+
+        // Assert
+        assertSame(user, byEmail);
+        assertSame(user, byId);
+        verify(userRepository, times(1)).findByEmail("john.doe@example.com");
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void updateUser_ShouldInvalidateOldEmail() {
+        // Arrange
+        when(userRepository.findById("USER-001")).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenReturn(updatedUser);
+        when(userRepository.findByEmail("john.doe@example.com")).thenReturn(Optional.empty());
+        userService.getUserById("USER-001");
+
+        // Act
+        userService.updateUser("USER-001", updatedUser);
+
+        // Assert
+        assertThrows(UserNotFoundException.class, () -> userService.getUserByEmail("john.doe@example.com"));
+        assertEquals("Smith", userService.getUserByEmail("john.smith@example.com").getLastName());
+        assertEquals("Smith", userService.getUserById("USER-001").getLastName());        verify(emailFilter).add("john.smith@example.com");
+        verify(emailFilter).remove("john.doe@example.com");
+    }
+
+    @Test
+    void getUsersPage_WhenMoreUsersExist_ShouldReturnNextCursor() {
+        // Arrange
+        User second = new User("65f000000000000000000002", "Jane", "Roe", "jane@example.com");
+        User third = new User("65f000000000000000000003", "Jim", "Poe", "jim@example.com");
+        when(userRepository.findByIdGreaterThanOrderByIdAsc("65f000000000000000000001", Limit.of(3)))
+                .thenReturn(List.of(second, third, user));
+
+        // Act
+        UserPageDTO page = userService.getUsersPage("65f000000000000000000001", 2);
+
+        // Assert
+        assertEquals(List.of(second, third), page.getUsers());
+        assertEquals("65f000000000000000000003", page.getNextCursor());
+    }
+
+    @Test
+    void getUsersPage_OnLastPage_ShouldHaveNoCursor() {
+        // Arrange
+        when(userRepository.findAllByOrderByIdAsc(Limit.of(11))).thenReturn(List.of(user));
+
+        // Act
+        UserPageDTO page = userService.getUsersPage(null, 10);
+
+        // Assert
+        assertEquals(1, page.getUsers().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getUsersPage_WithInvalidArguments_ShouldThrowException() {
+        assertThrows(ValidationException.class, () -> userService.getUsersPage(null, 0));
+        assertThrows(ValidationException.class, () -> userService.getUsersPage("not-an-id", 10));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void searchUsers_ShouldReturnUsersInMatchOrder() {
+        // Arrange
+        User jane = new User("USER-002", "Jane", "Doe", "jane@example.com");
+        when(searchIndex.search("doe", null, 10))
+                .thenReturn(new UserSearchIndex.SearchPage(List.of("USER-002", "USER-003", "USER-001"), "next"));
+        when(userRepository.findAllById(List.of("USER-002", "USER-003", "USER-001"))).thenReturn(List.of(user, jane));
+
+        // Act
+        UserPageDTO page = userService.searchUsers("doe", null, 10);
+
+        // Assert
+        assertEquals(List.of(jane, user), page.getUsers());
+        assertEquals("next", page.getNextCursor());
+    }
+
+    @Test
+    void getUsersByIds_ShouldPreserveOrderAndReportMissing() {
+        // Arrange
+        userCache.put(user);
+        User jane = new User("USER-002", "Jane", "Roe", "jane@example.com");
+        User jim = new User("USER-003", "Jim", "Poe", "jim@example.com");
+        when(userRepository.findAllById(List.of("USER-003", "USER-009"))).thenReturn(List.of(jim));
+        when(userRepository.findAllById(List.of("USER-002"))).thenReturn(List.of(jane));
+
+        // Act
+        UserBatchDTO result = userService.getUsersByIds(List.of("USER-003", "USER-001", "USER-009", "USER-002", "USER-001"));
+
+        // Assert
+        assertEquals(List.of(jim, user, jane), result.getUsers());
+        assertEquals(List.of("USER-009"), result.getMissingIds());
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    void getUsersByIds_WithTooManyOrNoIds_ShouldThrowException() {
+        assertThrows(ValidationException.class, () -> userService.getUsersByIds(List.of("1", "2", "3", "4", "5", "6")));
+        assertThrows(ValidationException.class, () -> userService.getUsersByIds(List.of()));
+        verifyNoInteractions(userRepository);
     }
-} 
\ No newline at end of file
+}